@@ -21,7 +21,25 @@ import com.eaio.uuid.UUID;
 /**
  * UUID Generator using the UUID library from http://johannburkard.de/software/uuid/
  */
-public class EaioUuidGenerator implements UuidGenerator {
+public class EaioUuidGenerator implements UuidGenerator<String> {
+
+    private final UuidEncoding encoding;
+
+    /**
+     * Construct a new generator of UUIDs in the canonical ({@link UuidEncoding#HEX}) form.
+     */
+    public EaioUuidGenerator() {
+        this(UuidEncoding.HEX);
+    }
+
+    /**
+     * Construct a new generator.
+     *
+     * @param encoding of generated UUIDs.
+     */
+    public EaioUuidGenerator(UuidEncoding encoding) {
+        this.encoding = encoding;
+    }
 
     /**
      * {@inheritDoc}
@@ -29,6 +47,9 @@ public class EaioUuidGenerator implements UuidGenerator {
     @Override
     public String generateUuid() {
         UUID uuid = new UUID();
-        return uuid.toString();
+        if (encoding == UuidEncoding.HEX) {
+            return uuid.toString();
+        }
+        return encoding.encode(uuid.getTime(), uuid.getClockSeqAndNode());
     }
 }
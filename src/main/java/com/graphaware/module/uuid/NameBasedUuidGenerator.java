@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * {@link NodeUuidGenerator} producing deterministic, name-based (version 5, SHA-1) UUIDs from the labels and the values
+ * of configured key properties of a node, so that the same business entity always gets the same UUID.
+ * <p/>
+ * The name hashed is the UTF-8 representation of the node's label names, sorted and separated by commas, followed by
+ * the values of the key properties in the configured order, each preceded by a colon. For example, a node labelled
+ * {@code Person} with key property {@code externalId} equal to {@code "123"} gets {@code UUID.v5(namespace, "Person:123")}.
+ * <p/>
+ * So that different labels and values never produce the same name, backslashes, commas and colons in label names and
+ * string values are escaped by a backslash, and other values are preceded by a backslash and a type tag: {@code i} for
+ * integral numbers ({@code externalId} equal to {@code 123L} gives {@code "Person:\i123"}), {@code f} for floating point
+ * numbers (as doubles), {@code b} for booleans and {@code c} for chars. Arrays are tagged {@code a}, followed by their
+ * elements, each represented like a single value, separated by commas.
+ * <p/>
+ * Nodes missing any of the key properties get a random (version 4) UUID.
+ */
+class NameBasedUuidGenerator implements NodeUuidGenerator<String> {
+
+    /**
+     * Namespace used when none is configured, v5 UUID of {@code http://graphaware.com/neo4j-uuid} in the URL namespace.
+     */
+    static final String DEFAULT_NAMESPACE = "6a7d9901-d6a3-5217-b6da-9b9cd3788400";
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private final UuidEncoding encoding;
+    private final String[] keyProperties;
+    private final byte[] namespace = new byte[16];
+
+    private final ThreadLocal<MessageDigest> digest = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-1 is not supported by this JVM", e);
+            }
+        }
+    };
+
+    private final ThreadLocal<NameBuffer> buffer = new ThreadLocal<NameBuffer>() {
+        @Override
+        protected NameBuffer initialValue() {
+            return new NameBuffer();
+        }
+    };
+
+    /**
+     * Construct a new generator.
+     *
+     * @param encoding      of generated UUIDs.
+     * @param keyProperties names of the properties UUIDs are derived from, must not be empty.
+     * @param namespace     canonical form of the namespace UUID.
+     */
+    public NameBasedUuidGenerator(UuidEncoding encoding, List<String> keyProperties, String namespace) {
+        if (keyProperties.isEmpty()) {
+            throw new IllegalArgumentException("Name-based UUID generation needs at least one key property");
+        }
+
+        this.encoding = encoding;
+        this.keyProperties = keyProperties.toArray(new String[keyProperties.size()]);
+
+        long[] namespaceBits = UuidEncoding.HEX.decode(namespace);
+        for (int i = 0; i < 8; i++) {
+            this.namespace[i] = (byte) (namespaceBits[0] >>> (56 - 8 * i));
+            this.namespace[i + 8] = (byte) (namespaceBits[1] >>> (56 - 8 * i));
+        }
+    }
+
+    /**
+     * Generate a random UUID, used for nodes that can't have a name-based one.
+     *
+     * @return the UUID.
+     */
+    @Override
+    public String generateUuid() {
+        UUID uuid = UUID.randomUUID();
+        return encoding.encode(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String generateUuid(Node node) {
+        return generateUuid(node.getLabels(), node, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String generateUuid(Iterable<Label> labels, Map<String, Object> properties) {
+        return generateUuid(labels, null, properties);
+    }
+
+    /**
+     * Generate a UUID from labels and key property values, read from the node if given, from the properties otherwise.
+     */
+    private String generateUuid(Iterable<Label> labels, Node node, Map<String, Object> properties) {
+        NameBuffer name = buffer.get();
+        name.reset();
+
+        appendLabels(labels, name);
+
+        for (String keyProperty : keyProperties) {
+            Object value = node != null ? node.getProperty(keyProperty, null) : properties.get(keyProperty);
+            if (value == null) {
+                return generateUuid();
+            }
+            name.append(':');
+            appendValue(value, name);
+        }
+
+        return name.toUuid();
+    }
+
+    /**
+     * Generate a UUID for the given name, as {@link #generateUuid(Node)} would for a node with the same name.
+     *
+     * @param name to generate the UUID for.
+     * @return the UUID.
+     */
+    public String generateUuid(String name) {
+        NameBuffer buffer = this.buffer.get();
+        buffer.reset();
+        buffer.append(name);
+        return buffer.toUuid();
+    }
+
+    private void appendLabels(Iterable<Label> nodeLabels, NameBuffer name) {
+        List<String> labels = null;
+        String singleLabel = null;
+
+        for (Label label : nodeLabels) {
+            if (singleLabel == null) {
+                singleLabel = label.name();
+            } else {
+                if (labels == null) {
+                    labels = new ArrayList<>();
+                    labels.add(singleLabel);
+                }
+                labels.add(label.name());
+            }
+        }
+
+        if (labels == null) {
+            if (singleLabel != null) {
+                name.append(singleLabel);
+            }
+            return;
+        }
+
+        Collections.sort(labels);
+        for (int i = 0; i < labels.size(); i++) {
+            if (i > 0) {
+                name.append(',');
+            }
+            name.appendEscaped(labels.get(i));
+        }
+    }
+
+    private void appendValue(Object value, NameBuffer name) {
+        if (value.getClass().isArray()) {
+            name.appendTag('a');
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                if (i > 0) {
+                    name.append(',');
+                }
+                appendSingleValue(Array.get(value, i), name);
+            }
+        } else {
+            appendSingleValue(value, name);
+        }
+    }
+
+    private void appendSingleValue(Object value, NameBuffer name) {
+        if (value instanceof String) {
+            name.appendEscaped((String) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            name.appendTag('i');
+            name.append(String.valueOf(value));
+        } else if (value instanceof Double || value instanceof Float) {
+            name.appendTag('f');
+            name.append(String.valueOf(((Number) value).doubleValue()));
+        } else if (value instanceof Boolean) {
+            name.appendTag('b');
+            name.append(String.valueOf(value));
+        } else if (value instanceof Character) {
+            name.appendTag('c');
+            name.appendEscaped(String.valueOf(value));
+        } else {
+            throw new IllegalArgumentException("Unsupported key property value " + value + " of type " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * Reusable, per-thread buffer the name is encoded to before hashing.
+     */
+    private class NameBuffer {
+
+        private byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+        private int length;
+
+        void reset() {
+            length = 0;
+        }
+
+        void append(char c) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) c;
+        }
+
+        void appendTag(char tag) {
+            append('\\');
+            append(tag);
+        }
+
+        void appendEscaped(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                if (isDelimiter(s.charAt(i))) {
+                    //slow path, only taken for strings containing delimiters
+                    StringBuilder escaped = new StringBuilder(s.length() + 8).append(s, 0, i);
+                    for (int j = i; j < s.length(); j++) {
+                        char c = s.charAt(j);
+                        if (isDelimiter(c)) {
+                            escaped.append('\\');
+                        }
+                        escaped.append(c);
+                    }
+                    append(escaped.toString());
+                    return;
+                }
+            }
+            append(s);
+        }
+
+        private boolean isDelimiter(char c) {
+            return c == '\\' || c == ',' || c == ':';
+        }
+
+        void append(String s) {
+            ensureCapacity(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    //slow path, only taken for non-ASCII strings
+                    byte[] encoded = s.getBytes(StandardCharsets.UTF_8);
+                    ensureCapacity(encoded.length);
+                    System.arraycopy(encoded, 0, bytes, length, encoded.length);
+                    length += encoded.length;
+                    return;
+                }
+                bytes[length + i] = (byte) c;
+            }
+            length += s.length();
+        }
+
+        /**
+         * @return name-based UUID of the name in this buffer.
+         */
+        String toUuid() {
+            MessageDigest sha1 = digest.get();
+            sha1.update(namespace);
+            sha1.update(bytes, 0, length);
+            byte[] hash = sha1.digest();
+
+            long msb = 0;
+            long lsb = 0;
+            for (int i = 0; i < 8; i++) {
+                msb = (msb << 8) | (hash[i] & 0xFF);
+                lsb = (lsb << 8) | (hash[i + 8] & 0xFF);
+            }
+
+            msb = (msb & ~0xF000L) | 0x5000L;                           //version 5
+            lsb = (lsb & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;   //IETF variant
+
+            return encoding.encode(msb, lsb);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > bytes.length) {
+                byte[] larger = new byte[Math.max(bytes.length * 2, length + extra)];
+                System.arraycopy(bytes, 0, larger, 0, length);
+                bytes = larger;
+            }
+        }
+    }
+}
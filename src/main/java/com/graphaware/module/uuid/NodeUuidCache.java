@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, direct-mapped cache of node ID to UUID, keyed by primitive {@code long}s so that lookups don't box.
+ * <p/>
+ * Each node ID maps to exactly one slot; a newer entry simply replaces whatever occupied its slot. Entries are immutable,
+ * so readers never see a half-written entry.
+ * <p/>
+ * Nodes are invalidated once the transactions deleting them (or repairing their UUIDs) have been committed. Since
+ * loading a UUID from the store can race with such a transaction, every invalidation bumps a version, and a loaded UUID
+ * is only kept if no invalidation happened since the load started (see {@link #put(long, String, long)}), like in
+ * {@link UuidNodeIdCache}.
+ */
+final class NodeUuidCache {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Create a new cache.
+     *
+     * @param capacity maximum number of entries, rounded up to the nearest power of two. Must be positive.
+     */
+    NodeUuidCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+
+        int size = capacity >= MAX_CAPACITY ? MAX_CAPACITY : Integer.highestOneBit(capacity - 1) << 1;
+        if (size == 0) {
+            size = 1;
+        }
+
+        this.entries = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Get the UUID of a node.
+     *
+     * @param nodeId ID of the node.
+     * @return UUID, null if not cached.
+     */
+    String get(long nodeId) {
+        Entry entry = entries.get(slot(nodeId));
+        if (entry != null && entry.nodeId == nodeId) {
+            return entry.uuid;
+        }
+        return null;
+    }
+
+    /**
+     * Cache the UUID of a node loaded from the store, unless a node has been invalidated since the load started.
+     *
+     * @param nodeId  ID of the node.
+     * @param uuid    UUID of the node. Must not be null.
+     * @param version of the cache obtained by {@link #version()} before the load started.
+     */
+    void put(long nodeId, String uuid, long version) {
+        int slot = slot(nodeId);
+        Entry entry = new Entry(nodeId, uuid);
+        entries.set(slot, entry);
+
+        //check after publishing; an invalidation that happens after this check will see (and remove) the entry
+        if (this.version.get() != version) {
+            entries.compareAndSet(slot, entry, null);
+        }
+    }
+
+    /**
+     * Remove a node from the cache, if present.
+     *
+     * @param nodeId ID of the node.
+     */
+    void invalidate(long nodeId) {
+        version.incrementAndGet();
+
+        int slot = slot(nodeId);
+        Entry entry = entries.get(slot);
+        if (entry != null && entry.nodeId == nodeId) {
+            entries.compareAndSet(slot, entry, null);
+        }
+    }
+
+    /**
+     * @return current version of the cache, to be passed to {@link #put(long, String, long)}.
+     */
+    long version() {
+        return version.get();
+    }
+
+    private int slot(long nodeId) {
+        long hash = nodeId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static final class Entry {
+        private final long nodeId;
+        private final String uuid;
+
+        private Entry(long nodeId, String uuid) {
+            this.nodeId = nodeId;
+            this.uuid = uuid;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+
+import java.util.Map;
+
+/**
+ * A {@link UuidGenerator} that derives UUIDs from the node they are generated for.
+ *
+ * @param <T> type of generated UUIDs.
+ */
+interface NodeUuidGenerator<T> extends UuidGenerator<T> {
+
+    /**
+     * Generate a UUID for a node.
+     *
+     * @param node to generate a UUID for.
+     * @return the UUID.
+     */
+    T generateUuid(Node node);
+
+    /**
+     * Generate a UUID for a node that hasn't been created yet (e.g. by {@link UuidBatchInserter}), as
+     * {@link #generateUuid(Node)} would for the node once created.
+     *
+     * @param labels     of the node.
+     * @param properties of the node.
+     * @return the UUID.
+     */
+    T generateUuid(Iterable<Label> labels, Map<String, Object> properties);
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resolves UUIDs of nodes given their IDs, in bulk.
+ * <p/>
+ * Node IDs that aren't cached are sorted, so that the node and property stores are read in (roughly) the order they
+ * are laid out on disk, and read in a single transaction.
+ */
+public class NodeUuidResolver {
+
+    private final UuidConfiguration configuration;
+    private final NodeUuidCache cache;
+
+    /**
+     * Construct a new resolver.
+     *
+     * @param configuration of the {@link UuidModule} whose UUIDs are being resolved.
+     */
+    NodeUuidResolver(UuidConfiguration configuration) {
+        this.configuration = configuration;
+        //UUIDs can change unchecked in assign-only mode, so there would be nothing to invalidate cached ones by
+        this.cache = configuration.getUuidCacheSize() > 0 && !UuidProtectionMode.ASSIGN_ONLY.equals(configuration.getProtectionMode())
+                ? new NodeUuidCache(configuration.getUuidCacheSize())
+                : null;
+    }
+
+    /**
+     * Get UUIDs of nodes.
+     *
+     * @param database in which the nodes live.
+     * @param nodeIds  IDs of the nodes.
+     * @return node ID to UUID map, in the order of the given node IDs. Nodes that don't exist or don't have a UUID are
+     *         not present in the map.
+     */
+    public Map<Long, String> getUuids(GraphDatabaseService database, long... nodeIds) {
+        Map<Long, String> result = new LinkedHashMap<>(nodeIds.length * 2);
+        String[] uuids = new String[nodeIds.length];
+
+        long[] misses = new long[nodeIds.length];
+        int numberOfMisses = 0;
+        for (int i = 0; i < nodeIds.length; i++) {
+            uuids[i] = cache != null ? cache.get(nodeIds[i]) : null;
+            if (uuids[i] == null) {
+                misses[numberOfMisses++] = nodeIds[i];
+            }
+        }
+
+        if (numberOfMisses > 0) {
+            misses = Arrays.copyOf(misses, numberOfMisses);
+            Arrays.sort(misses);
+            String[] loaded = load(database, misses);
+
+            for (int i = 0; i < nodeIds.length; i++) {
+                if (uuids[i] == null) {
+                    uuids[i] = loaded[Arrays.binarySearch(misses, nodeIds[i])];
+                }
+            }
+        }
+
+        for (int i = 0; i < nodeIds.length; i++) {
+            if (uuids[i] != null) {
+                result.put(nodeIds[i], uuids[i]);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the UUID of a single node.
+     *
+     * @param database in which the node lives.
+     * @param nodeId   ID of the node.
+     * @return UUID, null if the node doesn't exist or doesn't have a UUID.
+     */
+    public String getUuid(GraphDatabaseService database, long nodeId) {
+        return getUuids(database, nodeId).get(nodeId);
+    }
+
+    /**
+     * Notify the resolver that a transaction deleting a node or changing its UUID has been committed, so that its ID
+     * can no longer be resolved from the cache.
+     *
+     * @param nodeId ID of the node.
+     */
+    void invalidate(long nodeId) {
+        if (cache != null) {
+            cache.invalidate(nodeId);
+        }
+    }
+
+    private String[] load(GraphDatabaseService database, long[] sortedNodeIds) {
+        String[] uuids = new String[sortedNodeIds.length];
+        long version = cache != null ? cache.version() : 0;
+
+        try (Transaction tx = database.beginTx()) {
+            for (int i = 0; i < sortedNodeIds.length; i++) {
+                if (i > 0 && sortedNodeIds[i] == sortedNodeIds[i - 1]) {
+                    uuids[i] = uuids[i - 1];
+                    continue;
+                }
+
+                Node node;
+                try {
+                    node = database.getNodeById(sortedNodeIds[i]);
+                } catch (NotFoundException e) {
+                    continue;
+                }
+
+                Object uuid = node.getProperty(configuration.getUuidProperty(), null);
+                if (uuid != null) {
+                    uuids[i] = uuid.toString();
+                    //only UUIDs of included nodes are protected from modification, so only those can be safely cached
+                    if (cache != null && configuration.getInclusionPolicies().getNodeInclusionPolicy().include(node)) {
+                        cache.put(sortedNodeIds[i], uuids[i], version);
+                    }
+                }
+            }
+            tx.success();
+        }
+
+        return uuids;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.impl.core.NodeManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Scan of all nodes in the database, split into partitions by node ID, which are scanned in parallel, each in its own
+ * transaction.
+ */
+class ParallelNodeScan {
+
+    static final int DEFAULT_PARTITION_SIZE = 100_000;
+
+    private final GraphDatabaseService database;
+    private final int threads;
+    private final int partitionSize;
+    private final boolean lockNodes;
+
+    /**
+     * Construct a new scan with as many threads as there are available processors and default partition size.
+     *
+     * @param database to scan.
+     */
+    ParallelNodeScan(GraphDatabaseService database) {
+        this(database, Runtime.getRuntime().availableProcessors(), DEFAULT_PARTITION_SIZE);
+    }
+
+    /**
+     * Construct a new scan.
+     *
+     * @param database      to scan.
+     * @param threads       number of threads to scan with.
+     * @param partitionSize number of node IDs in a single partition.
+     */
+    ParallelNodeScan(GraphDatabaseService database, int threads, int partitionSize) {
+        this(database, threads, partitionSize, false);
+    }
+
+    /**
+     * Construct a new scan.
+     *
+     * @param database      to scan.
+     * @param threads       number of threads to scan with.
+     * @param partitionSize number of node IDs in a single partition.
+     * @param lockNodes     true to read-lock every node before visiting it, until its partition's transaction commits,
+     *                      so that no other transaction can modify or delete a visited node in the meantime.
+     */
+    ParallelNodeScan(GraphDatabaseService database, int threads, int partitionSize, boolean lockNodes) {
+        this.database = database;
+        this.threads = threads;
+        this.partitionSize = partitionSize;
+        this.lockNodes = lockNodes;
+    }
+
+    /**
+     * Visitor of scanned nodes. Called from multiple threads concurrently, always within a transaction.
+     */
+    interface NodeVisitor {
+
+        /**
+         * Visit a node.
+         *
+         * @param node to visit.
+         */
+        void visit(Node node);
+    }
+
+    /**
+     * Listener of scanned partitions. Called from multiple threads concurrently, outside of the partitions' transactions.
+     */
+    interface PartitionListener {
+
+        /**
+         * A partition is about to be scanned.
+         *
+         * @param from first node ID in the partition.
+         * @param to   node ID after the last one in the partition.
+         */
+        void started(long from, long to);
+
+        /**
+         * A partition has been scanned and its transaction committed.
+         *
+         * @param from first node ID in the partition.
+         * @param to   node ID after the last one in the partition.
+         */
+        void finished(long from, long to);
+    }
+
+    /**
+     * Scan all nodes. Blocks until all partitions have been scanned.
+     *
+     * @param visitor to visit each node with.
+     */
+    void scan(NodeVisitor visitor) {
+        scan(visitor, null);
+    }
+
+    /**
+     * Scan all nodes. Blocks until all partitions have been scanned.
+     *
+     * @param visitor  to visit each node with.
+     * @param listener to notify of scanned partitions, can be null.
+     */
+    void scan(final NodeVisitor visitor, final PartitionListener listener) {
+        long highestNodeId = highestNodeId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> partitions = new ArrayList<>();
+
+        try {
+            for (long start = 0; start <= highestNodeId; start += partitionSize) {
+                final long from = start;
+                final long to = Math.min(start + partitionSize, highestNodeId + 1);
+
+                partitions.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        scanPartition(from, to, visitor, listener);
+                    }
+                }));
+            }
+
+            for (Future<?> partition : partitions) {
+                partition.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while scanning nodes", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to scan nodes", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Get the highest node ID possibly in use.
+     *
+     * @return highest ID.
+     */
+    long highestNodeId() {
+        return ((GraphDatabaseAPI) database).getDependencyResolver().resolveDependency(NodeManager.class).getHighestPossibleIdInUse(Node.class);
+    }
+
+    private void scanPartition(long from, long to, NodeVisitor visitor, PartitionListener listener) {
+        if (listener != null) {
+            listener.started(from, to);
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            for (long nodeId = from; nodeId < to; nodeId++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                Node node;
+                try {
+                    node = database.getNodeById(nodeId);
+                } catch (NotFoundException e) {
+                    continue;
+                }
+
+                if (lockNodes) {
+                    tx.acquireReadLock(node);
+                    try {
+                        //the node may have been deleted while waiting for the lock
+                        node = database.getNodeById(nodeId);
+                    } catch (NotFoundException e) {
+                        continue;
+                    }
+                }
+
+                visitor.visit(node);
+            }
+            tx.success();
+        }
+
+        if (listener != null) {
+            listener.finished(from, to);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator of 64-bit, k-ordered (roughly time-ordered) IDs in the style of Twitter's Snowflake, stored as native
+ * {@code long} properties. Each ID is composed of
+ * <ul>
+ * <li>41 bits of milliseconds since {@link #EPOCH} (good until 2083),</li>
+ * <li>10 bits of worker ID, which must be unique among all generators producing IDs for the same graph,</li>
+ * <li>4 bits of stripe and 8 bits of sequence within the millisecond and stripe.</li>
+ * </ul>
+ * <p/>
+ * Threads are assigned stripes round-robin and each stripe keeps its own (timestamp, sequence) state, advanced with a
+ * single compare-and-set, so generation is lock-free and threads mostly don't contend with each other. When a stripe
+ * runs out of sequence numbers within a millisecond, it borrows the next millisecond. If the system clock goes back,
+ * generation carries on from the last timestamp used, so IDs never repeat, but if the clock is more than
+ * {@link #MAX_CLOCK_REGRESSION_MILLIS} behind, an {@link IllegalStateException} is thrown rather than running too far ahead.
+ */
+public class SnowflakeUuidGenerator implements UuidGenerator<Long> {
+
+    /**
+     * Start of time for generated IDs, 2014-01-01T00:00:00Z.
+     */
+    public static final long EPOCH = 1388534400000L;
+
+    static final int WORKER_ID_BITS = 10;
+    static final int STRIPE_BITS = 4;
+    static final int SEQUENCE_BITS = 8;
+    static final int TIMESTAMP_SHIFT = WORKER_ID_BITS + STRIPE_BITS + SEQUENCE_BITS;
+    static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+    static final long MAX_CLOCK_REGRESSION_MILLIS = 10_000;
+
+    private static final int STRIPES = 1 << STRIPE_BITS;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long workerBits;
+    private final AtomicLong[] stripes = new AtomicLong[STRIPES];
+    private final AtomicInteger nextStripe = new AtomicInteger();
+    private final ThreadLocal<Integer> stripe = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return nextStripe.getAndIncrement() & (STRIPES - 1);
+        }
+    };
+
+    /**
+     * Construct a new generator.
+     *
+     * @param workerId ID of this generator, between 0 and {@link #MAX_WORKER_ID}.
+     */
+    public SnowflakeUuidGenerator(long workerId) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("Worker ID must be between 0 and " + MAX_WORKER_ID + ", was " + workerId);
+        }
+
+        this.workerBits = workerId << (STRIPE_BITS + SEQUENCE_BITS);
+
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long generateUuid() {
+        int stripeIndex = stripe.get();
+        AtomicLong state = stripes[stripeIndex];
+
+        long next;
+        while (true) {
+            long last = state.get();
+            long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+
+            //state is (timestamp << SEQUENCE_BITS | sequence), so incrementing it rolls over into the next millisecond
+            next = Math.max(now, last + 1);
+
+            if ((next >>> SEQUENCE_BITS) - (now >>> SEQUENCE_BITS) > MAX_CLOCK_REGRESSION_MILLIS) {
+                throw new IllegalStateException("System clock is more than " + MAX_CLOCK_REGRESSION_MILLIS + " ms behind the last generated ID, refusing to generate IDs");
+            }
+
+            if (state.compareAndSet(last, next)) {
+                break;
+            }
+        }
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        return (timestamp << TIMESTAMP_SHIFT) | workerBits | ((long) stripeIndex << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+    }
+
+    /**
+     * Extract the time at which an ID was generated.
+     *
+     * @param id generated by this class.
+     * @return milliseconds since the Unix epoch.
+     */
+    public static long getTimestamp(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+}
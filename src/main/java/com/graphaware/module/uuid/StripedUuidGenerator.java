@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import com.eaio.uuid.UUIDGen;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator of time-based (version 1) UUIDs that, unlike {@link EaioUuidGenerator}, doesn't funnel all threads through
+ * a single shared clock sequence.
+ * <p/>
+ * State is split into {@link #STRIPES} stripes, each with its own clock sequence and its own last used timestamp
+ * (in 100-nanosecond intervals), advanced with a single compare-and-set. Threads are assigned stripes round-robin.
+ * Uniqueness holds because
+ * <ul>
+ * <li>the node field is the same as the one used by {@link EaioUuidGenerator} (derived from the MAC address), or, when a
+ * worker ID is given, carries the worker ID in its lowest 10 bits, so that generators with different worker IDs never
+ * produce the same UUID, even on the same machine,</li>
+ * <li>each stripe has a distinct clock sequence, starting at a random offset on every start (like eaio's clock sequence),</li>
+ * <li>each stripe's timestamps strictly increase, even if the system clock goes back.</li>
+ * </ul>
+ * Each stripe can produce 10 million UUIDs per second before it starts borrowing future timestamps.
+ */
+public class StripedUuidGenerator implements UuidGenerator<String> {
+
+    static final int STRIPES = 64;
+
+    static final long MAX_WORKER_ID = SnowflakeUuidGenerator.MAX_WORKER_ID;
+
+    private static final long NODE_MASK = 0x0000FFFFFFFFFFFFL;
+    private static final long MULTICAST_BIT = 0x0000010000000000L;
+    private static final long VARIANT = 0x8000000000000000L;
+    private static final long VERSION = 0x1000L;
+
+    /**
+     * Number of 100-nanosecond intervals between the UUID epoch (1582-10-15) and the Unix epoch.
+     */
+    static final long UUID_EPOCH_OFFSET = 0x01B21DD213814000L;
+
+    private final UuidEncoding encoding;
+    private final long[] clockSeqAndNode = new long[STRIPES];
+    private final AtomicLong[] lastTimestamps = new AtomicLong[STRIPES];
+    private final AtomicInteger nextStripe = new AtomicInteger();
+    private final ThreadLocal<Integer> stripe = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return nextStripe.getAndIncrement() % STRIPES;
+        }
+    };
+
+    /**
+     * Construct a new generator.
+     *
+     * @param encoding of generated UUIDs.
+     */
+    public StripedUuidGenerator(UuidEncoding encoding) {
+        this.encoding = encoding;
+        initializeStripes(UUIDGen.getClockSeqAndNode() & NODE_MASK);
+    }
+
+    /**
+     * Construct a new generator partitioned by worker ID. The node field is derived from the MAC address with its lowest
+     * 10 bits replaced by the worker ID and the multicast bit set, as RFC 4122 prescribes for node fields that aren't
+     * MAC addresses.
+     *
+     * @param encoding of generated UUIDs.
+     * @param workerId ID of this generator, between 0 and {@link #MAX_WORKER_ID}, unique among all generators producing
+     *                 UUIDs for the same graph.
+     */
+    public StripedUuidGenerator(UuidEncoding encoding, long workerId) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("Worker ID must be between 0 and " + MAX_WORKER_ID + ", was " + workerId);
+        }
+
+        this.encoding = encoding;
+        initializeStripes((UUIDGen.getClockSeqAndNode() & NODE_MASK & ~MAX_WORKER_ID) | MULTICAST_BIT | workerId);
+    }
+
+    private void initializeStripes(long node) {
+        int clockSeqOffset = new SecureRandom().nextInt(1 << 14);
+
+        for (int i = 0; i < STRIPES; i++) {
+            long clockSeq = (clockSeqOffset + i) & 0x3FFF;
+            clockSeqAndNode[i] = VARIANT | (clockSeq << 48) | node;
+            lastTimestamps[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String generateUuid() {
+        int stripeIndex = stripe.get();
+        AtomicLong lastTimestamp = lastTimestamps[stripeIndex];
+
+        long timestamp;
+        while (true) {
+            long last = lastTimestamp.get();
+            timestamp = Math.max(System.currentTimeMillis() * 10_000 + UUID_EPOCH_OFFSET, last + 1);
+            if (lastTimestamp.compareAndSet(last, timestamp)) {
+                break;
+            }
+        }
+
+        long time = (timestamp << 32)                     //time_low
+                | ((timestamp & 0xFFFF00000000L) >>> 16)  //time_mid
+                | VERSION                                 //version
+                | ((timestamp >>> 48) & 0x0FFF);          //time_hi
+
+        return encoding.encode(time, clockSeqAndNode[stripeIndex]);
+    }
+}
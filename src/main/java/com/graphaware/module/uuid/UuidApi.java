@@ -16,13 +16,25 @@
 package com.graphaware.module.uuid;
 
 import org.neo4j.graphdb.GraphDatabaseService;
-import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static com.graphaware.runtime.RuntimeRegistry.getRuntime;
 
 /**
  * REST API for {@link UuidModule}.
@@ -31,6 +43,10 @@ import org.springframework.web.bind.annotation.ResponseBody;
 @RequestMapping("/uuid")
 public class UuidApi {
 
+    private static final long MAX_POLL_MILLIS = 60_000;
+    private static final int MAX_PREFIX_MATCHES = 1000;
+    private static final int MAX_RANGE_PAGE = 10_000;
+
     private final GraphDatabaseService database;
 
     @Autowired
@@ -38,10 +54,142 @@ public class UuidApi {
         this.database = database;
     }
 
-    @RequestMapping(value = "/node/{uuid}", method = RequestMethod.GET)
+    @RequestMapping(value = "/{moduleId}/node/{uuid}", method = RequestMethod.GET)
+    @ResponseBody
+    public long getNodeId(@PathVariable(value = "moduleId") String moduleId,
+                          @PathVariable(value = "uuid") String uuid,
+                          @RequestParam(value = "consistency", defaultValue = "strong") String consistency) {
+        return getModule(moduleId).getNodeId(database, uuid, consistency(consistency));
+    }
+
+    @RequestMapping(value = "/{moduleId}/prefix/{prefix}", method = RequestMethod.GET)
+    @ResponseBody
+    public UuidPrefixMatches findByPrefix(@PathVariable(value = "moduleId") String moduleId,
+                                          @PathVariable(value = "prefix") String prefix,
+                                          @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return getModule(moduleId).findByPrefix(database, prefix, Math.min(limit, MAX_PREFIX_MATCHES));
+    }
+
+    @RequestMapping(value = "/{moduleId}/range", method = RequestMethod.GET)
+    @ResponseBody
+    public UuidTimeRangePage findByTimeRange(@PathVariable(value = "moduleId") String moduleId,
+                                             @RequestParam(value = "from", defaultValue = "0") long fromMillis,
+                                             @RequestParam(value = "to", defaultValue = "" + Long.MAX_VALUE) long toMillis,
+                                             @RequestParam(value = "cursor", required = false) String cursor,
+                                             @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+        return getModule(moduleId).findByTimeRange(database, fromMillis, toMillis, cursor, Math.min(limit, MAX_RANGE_PAGE));
+    }
+
+    @RequestMapping(value = "/{moduleId}/nodes", method = RequestMethod.POST)
+    @ResponseBody
+    public Map<String, Long> getNodeIdsByUuids(@PathVariable(value = "moduleId") String moduleId,
+                                               @RequestParam(value = "consistency", defaultValue = "strong") String consistency,
+                                               @RequestBody String[] uuids) {
+        return getModule(moduleId).getNodeIds(database, consistency(consistency), uuids);
+    }
+
+    @RequestMapping(value = "/{moduleId}/uuids", method = RequestMethod.POST)
+    @ResponseBody
+    public Map<Long, String> getUuidsByNodeIds(@PathVariable(value = "moduleId") String moduleId, @RequestBody long[] nodeIds) {
+        return getModule(moduleId).getNodeUuidResolver().getUuids(database, nodeIds);
+    }
+
+    @RequestMapping(value = "/{moduleId}/upsert", method = RequestMethod.POST)
+    @ResponseBody
+    public UuidUpsertResult upsert(@PathVariable(value = "moduleId") String moduleId,
+                                   @RequestParam(value = "batchSize", defaultValue = "1000") int batchSize,
+                                   @RequestBody List<UuidUpsertRecord> records) {
+        return getModule(moduleId).upsert(database, records, batchSize);
+    }
+
+    @RequestMapping(value = "/{moduleId}/changes", method = RequestMethod.GET)
+    @ResponseBody
+    public List<UuidChange> getChanges(@PathVariable(value = "moduleId") String moduleId,
+                                       @RequestParam(value = "since", defaultValue = "0") long since,
+                                       @RequestParam(value = "limit", defaultValue = "1000") int limit,
+                                       @RequestParam(value = "timeoutMillis", defaultValue = "0") long timeoutMillis) throws IOException {
+        return getModule(moduleId).getChanges(since, limit, Math.min(timeoutMillis, MAX_POLL_MILLIS));
+    }
+
+    @RequestMapping(value = "/{moduleId}/audit", method = RequestMethod.POST)
+    @ResponseBody
+    public UuidAuditReport audit(@PathVariable(value = "moduleId") String moduleId) {
+        return getModule(moduleId).audit(database);
+    }
+
+    @RequestMapping(value = "/{moduleId}/repair", method = RequestMethod.POST)
+    @ResponseBody
+    public UuidRepair startRepair(@PathVariable(value = "moduleId") String moduleId,
+                                  @RequestParam(value = "batchSize", defaultValue = "1000") int batchSize,
+                                  @RequestParam(value = "pauseMillis", defaultValue = "0") long pauseMillis) {
+
+        //never let clients choose where the server writes, the chosen file is reported by the repair's status
+        File file = new File(System.getProperty("java.io.tmpdir"), "uuid-repair-" + moduleId + "-" + System.currentTimeMillis() + ".tsv");
+
+        return getModule(moduleId).startRepair(database, batchSize, pauseMillis, file);
+    }
+
+    @RequestMapping(value = "/{moduleId}/repair", method = RequestMethod.GET)
+    @ResponseBody
+    public UuidRepair getRepair(@PathVariable(value = "moduleId") String moduleId) {
+        return getModule(moduleId).getRepair();
+    }
+
+    @RequestMapping(value = "/{moduleId}/index/rebuild", method = RequestMethod.POST)
+    @ResponseBody
+    public UuidIndexRebuild startIndexRebuild(@PathVariable(value = "moduleId") String moduleId) {
+        return getModule(moduleId).startIndexRebuild(database);
+    }
+
+    @RequestMapping(value = "/{moduleId}/index/rebuild", method = RequestMethod.GET)
+    @ResponseBody
+    public UuidIndexRebuild getIndexRebuild(@PathVariable(value = "moduleId") String moduleId) {
+        return getModule(moduleId).getIndexRebuild();
+    }
+
+    @RequestMapping(value = "/{moduleId}/metrics", method = RequestMethod.GET)
+    @ResponseBody
+    public Map<String, Object> getMetrics(@PathVariable(value = "moduleId") String moduleId) {
+        return getModule(moduleId).getMetrics().snapshot();
+    }
+
+    @RequestMapping(value = "/{moduleId}/metrics/hotkeys", method = RequestMethod.GET)
     @ResponseBody
-    public Node getNodeIdByUuid(@PathVariable(value = "uuid") String uuid) {
-        return null; //TODO till indexing is fixed or we use labels or a global scan
+    public Map<String, Object> getHotKeys(@PathVariable(value = "moduleId") String moduleId,
+                                          @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return getModule(moduleId).getHotKeys().snapshot(Math.min(limit, UuidHotKeys.TOP_K));
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public void handleConflict() {
+    }
+
+    @ExceptionHandler(NotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public void handleNotFound() {
+    }
+
+    @ExceptionHandler(UuidDeletedException.class)
+    @ResponseStatus(HttpStatus.GONE)
+    public void handleDeleted() {
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public void handleBadRequest() {
+    }
+
+    private UuidModule getModule(String moduleId) {
+        return getRuntime(database).getModule(moduleId, UuidModule.class);
+    }
+
+    private UuidConsistency consistency(String consistency) {
+        try {
+            return UuidConsistency.valueOf(consistency.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown consistency " + consistency + ", use eventual or strong", e);
+        }
     }
 
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Result of a {@link UuidAuditor} run. Counts are exact, examples of offending nodes are capped at {@link #MAX_EXAMPLES}
+ * per category.
+ */
+public class UuidAuditReport {
+
+    public static final int MAX_EXAMPLES = 100;
+
+    private final AtomicLong scannedNodes = new AtomicLong();
+    private final AtomicLong includedNodes = new AtomicLong();
+    private final AtomicLong missingUuids = new AtomicLong();
+    private final AtomicLong malformedUuids = new AtomicLong();
+    private long duplicateUuids;
+    private long durationMillis;
+
+    private final List<Long> nodesWithMissingUuid = Collections.synchronizedList(new ArrayList<Long>());
+    private final Map<Long, Object> nodesWithMalformedUuid = Collections.synchronizedMap(new LinkedHashMap<Long, Object>());
+    private final Map<String, List<Long>> nodesWithDuplicateUuid = new LinkedHashMap<>();
+
+    void nodeScanned() {
+        scannedNodes.incrementAndGet();
+    }
+
+    void nodeIncluded() {
+        includedNodes.incrementAndGet();
+    }
+
+    void missingUuid(long nodeId) {
+        if (missingUuids.incrementAndGet() <= MAX_EXAMPLES) {
+            nodesWithMissingUuid.add(nodeId);
+        }
+    }
+
+    void malformedUuid(long nodeId, Object value) {
+        if (malformedUuids.incrementAndGet() <= MAX_EXAMPLES) {
+            nodesWithMalformedUuid.put(nodeId, value);
+        }
+    }
+
+    void duplicateUuid(String uuid, List<Long> nodeIds) {
+        if (++duplicateUuids <= MAX_EXAMPLES) {
+            nodesWithDuplicateUuid.put(uuid, nodeIds);
+        }
+    }
+
+    void finished(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return true iff all included nodes have a well-formed, unique UUID.
+     */
+    public boolean isClean() {
+        return getMissingUuids() == 0 && getMalformedUuids() == 0 && getDuplicateUuids() == 0;
+    }
+
+    public long getScannedNodes() {
+        return scannedNodes.get();
+    }
+
+    public long getIncludedNodes() {
+        return includedNodes.get();
+    }
+
+    public long getMissingUuids() {
+        return missingUuids.get();
+    }
+
+    public long getMalformedUuids() {
+        return malformedUuids.get();
+    }
+
+    public long getDuplicateUuids() {
+        return duplicateUuids;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public List<Long> getNodesWithMissingUuid() {
+        return nodesWithMissingUuid;
+    }
+
+    public Map<Long, Object> getNodesWithMalformedUuid() {
+        return nodesWithMalformedUuid;
+    }
+
+    public Map<String, List<Long>> getNodesWithDuplicateUuid() {
+        return nodesWithDuplicateUuid;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "UuidAuditReport{" +
+                "scannedNodes=" + getScannedNodes() +
+                ", includedNodes=" + getIncludedNodes() +
+                ", missingUuids=" + getMissingUuids() +
+                ", malformedUuids=" + getMalformedUuids() +
+                ", duplicateUuids=" + getDuplicateUuids() +
+                ", durationMillis=" + getDurationMillis() +
+                '}';
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import com.graphaware.common.policy.NodeInclusionPolicy;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Audit of UUIDs assigned by the {@link UuidModule}. Scans all nodes in parallel and reports included nodes with missing
+ * or malformed UUIDs, as well as UUIDs shared by more than one node. Duplicates are found using a
+ * {@link UuidSpillDeduplicator}, so memory use stays bounded no matter how large the graph is.
+ */
+public class UuidAuditor {
+
+    private final GraphDatabaseService database;
+    private final UuidConfiguration configuration;
+
+    /**
+     * Construct a new auditor.
+     *
+     * @param database      to audit.
+     * @param configuration of the {@link UuidModule} whose UUIDs are being audited.
+     */
+    public UuidAuditor(GraphDatabaseService database, UuidConfiguration configuration) {
+        this.database = database;
+        this.configuration = configuration;
+    }
+
+    /**
+     * Run the audit. Blocks until finished.
+     *
+     * @return report.
+     */
+    public UuidAuditReport audit() {
+        long start = System.currentTimeMillis();
+
+        final UuidAuditReport report = new UuidAuditReport();
+        final NodeInclusionPolicy inclusionPolicy = configuration.getInclusionPolicies().getNodeInclusionPolicy();
+        final String uuidProperty = configuration.getUuidProperty();
+        final UuidFormat format = UuidFormat.of(configuration);
+
+        ParallelNodeScan scan = new ParallelNodeScan(database);
+
+        try (final UuidSpillDeduplicator deduplicator = new UuidSpillDeduplicator(new File(System.getProperty("java.io.tmpdir")), scan.highestNodeId())) {
+            scan.scan(new ParallelNodeScan.NodeVisitor() {
+                @Override
+                public void visit(Node node) {
+                    report.nodeScanned();
+
+                    if (!inclusionPolicy.include(node)) {
+                        return;
+                    }
+
+                    report.nodeIncluded();
+
+                    Object uuid = node.getProperty(uuidProperty, null);
+                    if (uuid == null) {
+                        report.missingUuid(node.getId());
+                    } else if (!format.isValid(uuid)) {
+                        report.malformedUuid(node.getId(), uuid);
+                    } else {
+                        try {
+                            deduplicator.add(uuid.toString(), node.getId());
+                        } catch (IOException e) {
+                            throw new RuntimeException("Failed to spill UUID to disk", e);
+                        }
+                    }
+                }
+            });
+
+            deduplicator.findDuplicates(new UuidSpillDeduplicator.DuplicateHandler() {
+                @Override
+                public void handle(String uuid, List<Long> nodeIds) {
+                    report.duplicateUuid(uuid, nodeIds);
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to audit UUIDs", e);
+        }
+
+        report.finished(System.currentTimeMillis() - start);
+
+        return report;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.neo4j.graphdb.Label;
+import org.neo4j.index.lucene.ValueContext;
+import org.neo4j.index.lucene.unsafe.batchinsert.LuceneBatchInserterIndexProvider;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.neo4j.unsafe.batchinsert.BatchInserterIndex;
+import org.neo4j.unsafe.batchinsert.BatchInserterIndexProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Companion of a {@link BatchInserter} for initial imports, which bypass transactions and therefore {@link UuidModule}.
+ * Nodes created through it are assigned UUIDs by the configured generator and indexed, like the module would. Once the
+ * import is finished, {@link #shutdown()} writes a marker to the store directory, so that when the module is first
+ * initialized on the imported store, it skips the scan that would otherwise assign and index UUIDs of all nodes.
+ * <p/>
+ * The node inclusion policy can't be evaluated on nodes that don't exist yet, so every node created through this class
+ * is assigned a UUID; nodes that shouldn't have one should be created through the {@link BatchInserter} directly.
+ * <p/>
+ * UUIDs passed in with the properties of nodes must be well-formed. They are checked for duplicates by a
+ * {@link UuidSpillDeduplicator}, on disk, when the import is finished, and so are all UUIDs assigned by a deterministic
+ * ({@link NodeUuidGenerator}) generator, which repeats UUIDs for nodes with the same keys. Only the first of the nodes
+ * sharing a UUID stays indexed, and the marker isn't written, so that the module checks all UUIDs when it starts.
+ * <p/>
+ * Not thread-safe, like the {@link BatchInserter} itself.
+ */
+public class UuidBatchInserter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UuidBatchInserter.class);
+
+    /**
+     * Name of the marker file written to the store directory once the import is finished.
+     */
+    static final String MARKER_FILE = "uuid-import.complete";
+
+    /**
+     * Number of UUIDs the {@link UuidSpillDeduplicator} is sized for.
+     */
+    private static final long EXPECTED_CHECKED_UUIDS = 10_000_000;
+
+    private final BatchInserter inserter;
+    private final UuidConfiguration configuration;
+    private final UuidGenerator<?> generator;
+    private final UuidFormat format;
+    private final UuidTimeIndex timeIndex;
+    private final BatchInserterIndexProvider indexProvider;
+    private final BatchInserterIndex index;
+    private final boolean deterministic;
+    private UuidSpillDeduplicator checkedUuids;
+    private long createdNodes;
+
+    /**
+     * Construct a new companion.
+     *
+     * @param inserter      to create nodes with.
+     * @param configuration of the {@link UuidModule} that will maintain the UUIDs once the import is finished.
+     */
+    public UuidBatchInserter(BatchInserter inserter, UuidConfiguration configuration) {
+        this.inserter = inserter;
+        this.configuration = configuration;
+        this.generator = configuration.getGeneratorType().createGenerator(configuration);
+        this.format = UuidFormat.of(configuration);
+        this.timeIndex = configuration.isTimeRangeIndex() ? new UuidTimeIndex(configuration, null) : null;
+        this.indexProvider = new LuceneBatchInserterIndexProvider(inserter);
+        this.index = indexProvider.nodeIndex(Indexes.UUID_NODE_INDEX, Collections.singletonMap("type", "exact"));
+        this.deterministic = generator instanceof NodeUuidGenerator;
+    }
+
+    /**
+     * Create a node with a UUID, unless the given properties contain one already.
+     *
+     * @param properties of the node, can be null.
+     * @param labels     of the node.
+     * @return ID of the created node.
+     * @throws IllegalArgumentException if the given UUID is malformed.
+     * @throws IOException              if the UUID can't be recorded for duplicate checking.
+     */
+    public long createNode(Map<String, Object> properties, Label... labels) throws IOException {
+        Map<String, Object> withUuid = withUuid(properties, labels);
+        long nodeId = inserter.createNode(withUuid, labels);
+        index(nodeId, withUuid.get(configuration.getUuidProperty()), isPreset(properties));
+        return nodeId;
+    }
+
+    /**
+     * Create a node with the given ID and a UUID, unless the given properties contain one already.
+     *
+     * @param id         of the node.
+     * @param properties of the node, can be null.
+     * @param labels     of the node.
+     * @throws IllegalArgumentException if the given UUID is malformed.
+     * @throws IOException              if the UUID can't be recorded for duplicate checking.
+     */
+    public void createNode(long id, Map<String, Object> properties, Label... labels) throws IOException {
+        Map<String, Object> withUuid = withUuid(properties, labels);
+        inserter.createNode(id, withUuid, labels);
+        index(id, withUuid.get(configuration.getUuidProperty()), isPreset(properties));
+    }
+
+    /**
+     * Finish the import: check the given (and deterministic) UUIDs for duplicates, flush and close the index and write the marker, unless
+     * there were duplicates. The {@link BatchInserter} must be shut down separately, afterwards.
+     *
+     * @throws IOException if the UUIDs can't be checked or the marker can't be written.
+     */
+    public void shutdown() throws IOException {
+        long duplicates = unindexDuplicates();
+
+        index.flush();
+        indexProvider.shutdown();
+
+        if (duplicates > 0) {
+            LOG.warn("{} UUIDs are shared by more than one imported node, only the first node of each is indexed. Not writing {}, audit and repair UUIDs once the module has started.", duplicates, MARKER_FILE);
+            return;
+        }
+
+        File marker = new File(inserter.getStoreDir(), MARKER_FILE);
+        try (OutputStream out = new FileOutputStream(marker)) {
+            out.write(configuration.getUuidProperty().getBytes(StandardCharsets.UTF_8));
+        }
+
+        LOG.info("Assigned UUIDs to {} imported nodes, wrote {}", createdNodes, marker.getAbsolutePath());
+    }
+
+    /**
+     * Check whether a store has been imported with UUIDs assigned by a {@link UuidBatchInserter} for the given UUID
+     * property, i.e. whether its marker is present.
+     *
+     * @param storeDir     of the database.
+     * @param uuidProperty the marker must have been written for.
+     * @return true iff the store has been imported with UUIDs.
+     */
+    static boolean isImported(String storeDir, String uuidProperty) {
+        File marker = new File(storeDir, MARKER_FILE);
+        if (!marker.exists()) {
+            return false;
+        }
+
+        try {
+            return uuidProperty.equals(new String(Files.readAllBytes(marker.toPath()), StandardCharsets.UTF_8).trim());
+        } catch (IOException e) {
+            LOG.warn("Could not read " + marker.getAbsolutePath(), e);
+            return false;
+        }
+    }
+
+    private Map<String, Object> withUuid(Map<String, Object> properties, Label[] labels) {
+        Map<String, Object> withUuid = properties != null ? new HashMap<>(properties) : new HashMap<String, Object>();
+
+        Object uuid = withUuid.get(configuration.getUuidProperty());
+        if (uuid != null && !format.isValid(uuid)) {
+            throw new IllegalArgumentException("UUID " + uuid + " is not a valid " + configuration.getUuidProperty() + " in the configured format");
+        }
+
+        if (uuid == null) {
+            uuid = generator instanceof NodeUuidGenerator
+                    ? ((NodeUuidGenerator<?>) generator).generateUuid(Arrays.asList(labels), withUuid)
+                    : generator.generateUuid();
+            withUuid.put(configuration.getUuidProperty(), uuid);
+        }
+
+        return withUuid;
+    }
+
+    private boolean isPreset(Map<String, Object> properties) {
+        return properties != null && properties.get(configuration.getUuidProperty()) != null;
+    }
+
+    private void index(long nodeId, Object uuid, boolean preset) throws IOException {
+        if (preset || deterministic) {
+            if (checkedUuids == null) {
+                checkedUuids = new UuidSpillDeduplicator(new File(System.getProperty("java.io.tmpdir")), EXPECTED_CHECKED_UUIDS);
+            }
+            checkedUuids.add(uuid.toString(), nodeId);
+        }
+
+        Map<String, Object> entries = new HashMap<>();
+        entries.put(configuration.getUuidProperty(), uuid);
+
+        ValueContext time = timeIndex != null ? timeIndex.value(uuid) : null;
+        if (time != null) {
+            entries.put(timeIndex.getKey(), time);
+        }
+
+        index.add(nodeId, entries);
+        createdNodes++;
+    }
+
+    /**
+     * Remove all but the first of the nodes sharing a given UUID from the index.
+     *
+     * @return number of duplicate UUIDs.
+     */
+    private long unindexDuplicates() throws IOException {
+        if (checkedUuids == null) {
+            return 0;
+        }
+
+        try {
+            return checkedUuids.findDuplicates(new UuidSpillDeduplicator.DuplicateHandler() {
+                @Override
+                public void handle(String uuid, List<Long> nodeIds) {
+                    LOG.warn("Imported nodes {} share UUID {}, indexing only node {}", nodeIds, uuid, nodeIds.get(0));
+                    for (Long nodeId : nodeIds.subList(1, nodeIds.size())) {
+                        index.updateOrAdd(nodeId, Collections.<String, Object>emptyMap());
+                    }
+                }
+            });
+        } finally {
+            checkedUuids.close();
+            checkedUuids = null;
+        }
+    }
+}
@@ -21,6 +21,8 @@ import com.graphaware.runtime.config.function.StringToNodeInclusionPolicy;
 import com.graphaware.runtime.module.RuntimeModule;
 import com.graphaware.runtime.module.RuntimeModuleBootstrapper;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.configuration.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,12 +41,45 @@ public class UuidBootstrapper implements RuntimeModuleBootstrapper {
     //keys to use when configuring using neo4j.properties
     private static final String UUID_PROPERTY = "uuidProperty";
     private static final String NODE = "node";
+    private static final String UUID_CACHE_SIZE = "uuidCacheSize";
+    private static final String NODE_ID_CACHE_SIZE = "nodeIdCacheSize";
+    private static final String WARM_UP_FILE = "warmUpFile";
+    private static final String WARM_UP_INDEX_PAGES = "warmUpIndexPages";
+    private static final String HOT_KEY_SAMPLE_RATE = "hotKeySampleRate";
+    private static final String AUDIT_ON_STARTUP = "auditOnStartup";
+    private static final String SLOW_TRANSACTION_THRESHOLD = "slowTransactionThresholdMillis";
+    private static final String ENCODING = "encoding";
+    private static final String GENERATOR = "generator";
+    private static final String WORKER_ID = "workerId";
+    private static final String NAME_BASED_KEYS = "nameBasedKeys";
+    private static final String NAME_BASED_NAMESPACE = "nameBasedNamespace";
+    private static final String CHANGE_LOG_DIRECTORY = "changeLogDirectory";
+    private static final String CHANGE_LOG_RETAINED_SEGMENTS = "changeLogRetainedSegments";
+    private static final String TOMBSTONE_RETENTION = "tombstoneRetentionSeconds";
+    private static final String TIME_RANGE_INDEX = "timeRangeIndex";
+    private static final String SCHEMA_INDEX_LABELS = "schemaIndexLabels";
+    private static final String UNIQUE_CONSTRAINT = "uniqueConstraint";
+    private static final String PROTECTION_MODE = "protectionMode";
+
+    //Neo4j HA setting the worker ID is derived from, unless configured explicitly
+    private static final String HA_SERVER_ID = "ha.server_id";
 
     /**
      * @{inheritDoc}
      */
     @Override
     public RuntimeModule bootstrapModule(String moduleId, Map<String, String> config, GraphDatabaseService database) {
+        return new UuidModule(moduleId, configure(config, database));
+    }
+
+    /**
+     * Create a configuration from neo4j.properties-style settings.
+     *
+     * @param config   settings, keyed without the module prefix.
+     * @param database the module is bootstrapped for, null when used outside a database (e.g. by {@link UuidVerifier}).
+     * @return configuration.
+     */
+    UuidConfiguration configure(Map<String, String> config, GraphDatabaseService database) {
         UuidConfiguration configuration = UuidConfiguration.defaultConfiguration();
 
         if (config.get(UUID_PROPERTY) != null && config.get(UUID_PROPERTY).length() > 0) {
@@ -58,6 +93,144 @@ public class UuidBootstrapper implements RuntimeModuleBootstrapper {
             configuration = configuration.with(policy);
         }
 
-        return new UuidModule(moduleId, configuration);
+        if (config.get(UUID_CACHE_SIZE) != null) {
+            configuration = configuration.withUuidCacheSize(Integer.parseInt(config.get(UUID_CACHE_SIZE)));
+            LOG.info("uuidCacheSize set to {}", configuration.getUuidCacheSize());
+        }
+
+        if (config.get(NODE_ID_CACHE_SIZE) != null) {
+            configuration = configuration.withNodeIdCacheSize(Integer.parseInt(config.get(NODE_ID_CACHE_SIZE)));
+            LOG.info("nodeIdCacheSize set to {}", configuration.getNodeIdCacheSize());
+        }
+
+        if (config.get(WARM_UP_FILE) != null && config.get(WARM_UP_FILE).length() > 0) {
+            configuration = configuration.withWarmUpFile(config.get(WARM_UP_FILE).trim());
+            LOG.info("warmUpFile set to {}", configuration.getWarmUpFile());
+        }
+
+        if (config.get(WARM_UP_INDEX_PAGES) != null) {
+            configuration = configuration.withWarmUpIndexPages(Boolean.parseBoolean(config.get(WARM_UP_INDEX_PAGES)));
+            LOG.info("warmUpIndexPages set to {}", configuration.isWarmUpIndexPages());
+        }
+
+        if (config.get(HOT_KEY_SAMPLE_RATE) != null) {
+            configuration = configuration.withHotKeySampleRate(Integer.parseInt(config.get(HOT_KEY_SAMPLE_RATE)));
+            LOG.info("hotKeySampleRate set to {}", configuration.getHotKeySampleRate());
+        }
+
+        if (config.get(AUDIT_ON_STARTUP) != null) {
+            configuration = configuration.withAuditOnStartup(Boolean.parseBoolean(config.get(AUDIT_ON_STARTUP)));
+            LOG.info("auditOnStartup set to {}", configuration.isAuditOnStartup());
+        }
+
+        if (config.get(SLOW_TRANSACTION_THRESHOLD) != null) {
+            configuration = configuration.withSlowTransactionThresholdMillis(Long.parseLong(config.get(SLOW_TRANSACTION_THRESHOLD)));
+            LOG.info("slowTransactionThresholdMillis set to {}", configuration.getSlowTransactionThresholdMillis());
+        }
+
+        if (config.get(ENCODING) != null && config.get(ENCODING).length() > 0) {
+            configuration = configuration.withEncoding(UuidEncoding.valueOf(config.get(ENCODING).trim().toUpperCase()));
+            LOG.info("encoding set to {}", configuration.getEncoding());
+        }
+
+        if (config.get(GENERATOR) != null && config.get(GENERATOR).length() > 0) {
+            configuration = configuration.withGeneratorType(UuidGeneratorType.valueOf(config.get(GENERATOR).trim().toUpperCase()));
+            LOG.info("generator set to {}", configuration.getGeneratorType());
+        }
+
+        if (config.get(WORKER_ID) != null) {
+            configuration = configuration.withWorkerId(Long.parseLong(config.get(WORKER_ID)));
+            LOG.info("workerId set to {}", configuration.getWorkerId());
+        } else if (usesWorkerId(configuration.getGeneratorType())) {
+            String serverId = haServerId(database);
+            if (serverId != null && serverId.trim().length() > 0) {
+                configuration = configuration.withWorkerId(workerId(serverId.trim()));
+                LOG.info("workerId set to {} ({})", configuration.getWorkerId(), HA_SERVER_ID);
+            }
+        }
+
+        if (config.get(NAME_BASED_KEYS) != null && config.get(NAME_BASED_KEYS).length() > 0) {
+            configuration = configuration.withNameBasedKeys(split(config.get(NAME_BASED_KEYS)));
+            LOG.info("nameBasedKeys set to {}", configuration.getNameBasedKeys());
+        }
+
+        if (config.get(NAME_BASED_NAMESPACE) != null && config.get(NAME_BASED_NAMESPACE).length() > 0) {
+            configuration = configuration.withNameBasedNamespace(config.get(NAME_BASED_NAMESPACE).trim());
+            LOG.info("nameBasedNamespace set to {}", configuration.getNameBasedNamespace());
+        }
+
+        if (config.get(CHANGE_LOG_DIRECTORY) != null && config.get(CHANGE_LOG_DIRECTORY).length() > 0) {
+            configuration = configuration.withChangeLogDirectory(config.get(CHANGE_LOG_DIRECTORY).trim());
+            LOG.info("changeLogDirectory set to {}", configuration.getChangeLogDirectory());
+        }
+
+        if (config.get(CHANGE_LOG_RETAINED_SEGMENTS) != null) {
+            configuration = configuration.withChangeLogRetainedSegments(Integer.parseInt(config.get(CHANGE_LOG_RETAINED_SEGMENTS)));
+            LOG.info("changeLogRetainedSegments set to {}", configuration.getChangeLogRetainedSegments());
+        }
+
+        if (config.get(TOMBSTONE_RETENTION) != null) {
+            configuration = configuration.withTombstoneRetentionSeconds(Long.parseLong(config.get(TOMBSTONE_RETENTION)));
+            LOG.info("tombstoneRetentionSeconds set to {}", configuration.getTombstoneRetentionSeconds());
+        }
+
+        if (config.get(TIME_RANGE_INDEX) != null) {
+            configuration = configuration.withTimeRangeIndex(Boolean.parseBoolean(config.get(TIME_RANGE_INDEX)));
+            LOG.info("timeRangeIndex set to {}", configuration.isTimeRangeIndex());
+        }
+
+        if (config.get(SCHEMA_INDEX_LABELS) != null && config.get(SCHEMA_INDEX_LABELS).length() > 0) {
+            configuration = configuration.withSchemaIndexLabels(split(config.get(SCHEMA_INDEX_LABELS)));
+            LOG.info("schemaIndexLabels set to {}", configuration.getSchemaIndexLabels());
+        }
+
+        if (config.get(UNIQUE_CONSTRAINT) != null) {
+            configuration = configuration.withUniqueConstraint(Boolean.parseBoolean(config.get(UNIQUE_CONSTRAINT)));
+            LOG.info("uniqueConstraint set to {}", configuration.isUniqueConstraint());
+        }
+
+        if (config.get(PROTECTION_MODE) != null && config.get(PROTECTION_MODE).length() > 0) {
+            configuration = configuration.withProtectionMode(UuidProtectionMode.valueOf(config.get(PROTECTION_MODE).trim().replace('-', '_').toUpperCase()));
+            LOG.info("protectionMode set to {}", configuration.getProtectionMode());
+        }
+
+        return configuration;
+    }
+
+    private boolean usesWorkerId(UuidGeneratorType generatorType) {
+        return UuidGeneratorType.SNOWFLAKE.equals(generatorType) || UuidGeneratorType.STRIPED.equals(generatorType);
+    }
+
+    private long workerId(String serverId) {
+        long workerId;
+        try {
+            workerId = Long.parseLong(serverId);
+        } catch (NumberFormatException e) {
+            workerId = -1;
+        }
+
+        if (workerId < 0 || workerId > SnowflakeUuidGenerator.MAX_WORKER_ID) {
+            throw new IllegalArgumentException(HA_SERVER_ID + " " + serverId + " can't be used as the UUID worker ID, which must be between 0 and "
+                    + SnowflakeUuidGenerator.MAX_WORKER_ID + ". Configure " + WORKER_ID + " explicitly.");
+        }
+
+        return workerId;
+    }
+
+    private String haServerId(GraphDatabaseService database) {
+        if (!(database instanceof GraphDatabaseAPI)) {
+            return null;
+        }
+
+        return ((GraphDatabaseAPI) database).getDependencyResolver().resolveDependency(Config.class).getParams().get(HA_SERVER_ID);
+    }
+
+    private List<String> split(String value) {
+        List<String> result = new ArrayList<>();
+        StringTokenizer tokenizer = new StringTokenizer(value, ",");
+        while (tokenizer.hasMoreTokens()) {
+            result.add(tokenizer.nextToken().trim());
+        }
+        return result;
     }
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warm-up of the {@link UuidNodeIdCache} after a restart. The cached mappings are saved to a snapshot file (one
+ * tab-separated UUID and node ID per line) when the database shuts down, and loaded back in parallel when it starts,
+ * so that the first lookups don't all hit a cold cache.
+ * <p/>
+ * Every loaded mapping is verified against the store before it is cached. Optionally, it is looked up through the
+ * indexes instead, which also brings the index pages the lookups will need into the page cache.
+ */
+class UuidCacheWarmUp {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UuidCacheWarmUp.class);
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int CHUNK_SIZE = 1000;
+
+    private final UuidModule module;
+    private final UuidConfiguration configuration;
+    private final UuidFormat format;
+    private final UuidNodeIdCache cache;
+
+    /**
+     * Construct a new warm-up.
+     *
+     * @param module        whose cache to warm up.
+     * @param configuration of the module.
+     * @param cache         to warm up.
+     */
+    UuidCacheWarmUp(UuidModule module, UuidConfiguration configuration, UuidNodeIdCache cache) {
+        this.module = module;
+        this.configuration = configuration;
+        this.format = UuidFormat.of(configuration);
+        this.cache = cache;
+    }
+
+    /**
+     * Save the cached mappings. The snapshot is written to a temporary file first and then renamed, so that a crash
+     * doesn't leave a partial one behind.
+     *
+     * @param file to save the snapshot to.
+     * @return number of saved mappings.
+     * @throws IOException if the snapshot can't be written.
+     */
+    int save(File file) throws IOException {
+        File temp = new File(file.getAbsolutePath() + ".tmp");
+        Map<Object, Long> snapshot = cache.snapshot();
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), UTF_8))) {
+            for (Map.Entry<Object, Long> entry : snapshot.entrySet()) {
+                writer.write(entry.getKey().toString());
+                writer.write('\t');
+                writer.write(Long.toString(entry.getValue()));
+                writer.write('\n');
+            }
+        }
+
+        if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+            throw new IOException("Could not replace " + file.getAbsolutePath() + " by " + temp.getAbsolutePath());
+        }
+
+        return snapshot.size();
+    }
+
+    /**
+     * Load a snapshot into the cache. Blocks until finished.
+     *
+     * @param database        the mappings point to.
+     * @param file            to load the snapshot from.
+     * @param touchIndexPages true to look the UUIDs up through the indexes, false to only verify them against the store.
+     * @return number of cached mappings.
+     * @throws IOException if the snapshot can't be read.
+     */
+    int load(final GraphDatabaseService database, File file, final boolean touchIndexPages) throws IOException {
+        final List<String> uuids = new ArrayList<>();
+        final List<Long> nodeIds = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab < 0) {
+                    continue;
+                }
+                try {
+                    nodeIds.add(Long.parseLong(line.substring(tab + 1)));
+                    uuids.add(line.substring(0, tab));
+                } catch (NumberFormatException e) {
+                    LOG.warn("Skipping malformed line in UUID cache snapshot: {}", line);
+                }
+            }
+        }
+
+        final AtomicInteger loaded = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Future<?>> chunks = new ArrayList<>();
+
+        try {
+            for (int start = 0; start < uuids.size(); start += CHUNK_SIZE) {
+                final int from = start;
+                final int to = Math.min(start + CHUNK_SIZE, uuids.size());
+
+                chunks.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        List<String> chunk = uuids.subList(from, to);
+                        if (touchIndexPages) {
+                            loaded.addAndGet(module.findNodeIds(database, UuidConsistency.STRONG, chunk.toArray(new String[chunk.size()])).size());
+                        } else {
+                            loaded.addAndGet(verify(database, chunk, nodeIds.subList(from, to)));
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while warming up UUID cache", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to warm up UUID cache", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return loaded.get();
+    }
+
+    /**
+     * Cache the mappings whose nodes still exist and have the UUID, in a single transaction.
+     */
+    private int verify(GraphDatabaseService database, List<String> uuids, List<Long> nodeIds) {
+        int verified = 0;
+        long version = cache.version();
+
+        try (Transaction tx = database.beginTx()) {
+            for (int i = 0; i < uuids.size(); i++) {
+                Object uuid = format.normalize(uuids.get(i));
+                if (!format.isValid(uuid)) {
+                    continue;
+                }
+
+                Node node;
+                try {
+                    node = database.getNodeById(nodeIds.get(i));
+                } catch (NotFoundException e) {
+                    continue;
+                }
+
+                if (uuid.equals(node.getProperty(configuration.getUuidProperty(), null))) {
+                    cache.put(uuid, node.getId(), version);
+                    verified++;
+                }
+            }
+            tx.success();
+        }
+
+        return verified;
+    }
+}
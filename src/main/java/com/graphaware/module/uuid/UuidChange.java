@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+/**
+ * An entry of the {@link UuidChangeLog}: a UUID assigned to or removed from a node (with the node).
+ */
+public final class UuidChange {
+
+    /**
+     * Types of changes.
+     */
+    public enum Type {
+        /**
+         * UUID has been assigned to a node, either by the module or by the creator of the node.
+         */
+        ASSIGNED,
+
+        /**
+         * Node with the UUID has been deleted, or the UUID has been replaced by a repair.
+         */
+        DELETED
+    }
+
+    private final long sequence;
+    private final long timestamp;
+    private final Type type;
+    private final long nodeId;
+    private final Object uuid;
+
+    /**
+     * Create a change that hasn't been published to the change log yet.
+     *
+     * @param type   of the change.
+     * @param nodeId ID of the node.
+     * @param uuid   of the node.
+     */
+    UuidChange(Type type, long nodeId, Object uuid) {
+        this(0, 0, type, nodeId, uuid);
+    }
+
+    UuidChange(long sequence, long timestamp, Type type, long nodeId, Object uuid) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.nodeId = nodeId;
+        this.uuid = uuid;
+    }
+
+    /**
+     * Create a copy of this change, as published to the change log.
+     *
+     * @param sequence  of the change in the log.
+     * @param timestamp of publishing the change.
+     * @return published change.
+     */
+    UuidChange published(long sequence, long timestamp) {
+        return new UuidChange(sequence, timestamp, type, nodeId, uuid);
+    }
+
+    /**
+     * @return sequence number of the change, unique and increasing by one with every change in the log.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return time the change has been published to the log, in ms since epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    public Object getUuid() {
+        return uuid;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return sequence + "\t" + timestamp + "\t" + type + "\t" + nodeId + "\t" + uuid;
+    }
+}
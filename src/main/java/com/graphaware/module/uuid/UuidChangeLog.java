@@ -0,0 +1,486 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only, local log of {@link UuidChange}s, which allows downstream systems to mirror the UUID to node mapping
+ * incrementally, rather than rescanning the graph.
+ * <p/>
+ * The log is a directory of segments, each holding up to {@link #SEGMENT_SIZE} changes, one per line, tab-separated.
+ * Backslashes, tabs and line breaks in UUIDs are escaped, and lines that can't be parsed are skipped by readers, so
+ * that a single bad value can't stall them. Segments are named after the sequence number of their first change.
+ * Changes are appended after commit, so changes of transactions committed just before a crash can be missing from the
+ * log.
+ * <p/>
+ * Only a configured number of the most recent segments can be retained, older ones are deleted when a new one is
+ * started. Readers that fall behind the oldest retained change get changes from there on, i.e. with a gap in sequence
+ * numbers, and must resynchronize from the graph.
+ * <p/>
+ * Appending is synchronized, reading isn't and only returns changes that have been fully written.
+ */
+class UuidChangeLog implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UuidChangeLog.class);
+
+    static final int SEGMENT_SIZE = 100_000;
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final File directory;
+    private final boolean numeric;
+    private final int retainedSegments;
+    private final ConcurrentSkipListMap<Long, File> segments = new ConcurrentSkipListMap<>();
+    private final Object newChanges = new Object();
+
+    private volatile long lastSequence;
+    private Writer writer;
+    private int changesInSegment;
+
+    /**
+     * Open a change log retaining all segments, creating it if it doesn't exist.
+     *
+     * @param directory of the log.
+     * @param numeric   true iff UUIDs in the log are longs, false iff they're Strings.
+     * @throws IOException if the log can't be opened.
+     */
+    UuidChangeLog(File directory, boolean numeric) throws IOException {
+        this(directory, numeric, 0);
+    }
+
+    /**
+     * Open a change log, creating it if it doesn't exist.
+     *
+     * @param directory        of the log.
+     * @param numeric          true iff UUIDs in the log are longs, false iff they're Strings.
+     * @param retainedSegments number of most recent segments to retain, 0 or less to retain all.
+     * @throws IOException if the log can't be opened.
+     */
+    UuidChangeLog(File directory, boolean numeric, int retainedSegments) throws IOException {
+        this.directory = directory;
+        this.numeric = numeric;
+        this.retainedSegments = retainedSegments;
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create change log directory " + directory);
+        }
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(SEGMENT_SUFFIX)) {
+                    segments.put(Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length())), file);
+                }
+            }
+        }
+
+        deleteOldSegments();
+
+        if (!segments.isEmpty()) {
+            File lastSegment = segments.lastEntry().getValue();
+            recover(lastSegment);
+            if (changesInSegment < SEGMENT_SIZE) {
+                writer = openWriter(lastSegment);
+            }
+        }
+    }
+
+    /**
+     * Truncate the last segment after its last complete line (a crash may have left a partially written one behind)
+     * and find out the last sequence number.
+     *
+     * @param segment last segment.
+     * @throws IOException if the segment can't be read or truncated.
+     */
+    private void recover(File segment) throws IOException {
+        long validLength = 0;
+        long position = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(segment), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                position += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                if (position > segment.length()) {
+                    //no line break, i.e. partially written
+                    break;
+                }
+
+                validLength = position;
+                changesInSegment++;
+
+                UuidChange change = parse(line);
+                if (change == null) {
+                    LOG.warn("Skipping unparsable line in change log segment {}: {}", segment, line);
+                } else {
+                    lastSequence = change.getSequence();
+                }
+            }
+        }
+
+        if (validLength < segment.length()) {
+            LOG.warn("Truncating partially written change log segment {} from {} to {} bytes", segment, segment.length(), validLength);
+            try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+                file.setLength(validLength);
+            }
+        }
+
+        if (lastSequence == 0) {
+            lastSequence = segments.lastKey() - 1;
+        }
+    }
+
+    /**
+     * @return sequence number of the last change in the log, 0 if the log is empty.
+     */
+    long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Append changes to the log, assigning them sequence numbers, and wake up readers waiting for them.
+     *
+     * @param changes to append.
+     * @throws IOException if the changes couldn't be written.
+     */
+    synchronized void append(List<UuidChange> changes) throws IOException {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        long sequence = lastSequence;
+        long timestamp = System.currentTimeMillis();
+
+        for (UuidChange change : changes) {
+            if (writer == null || changesInSegment >= SEGMENT_SIZE) {
+                startSegment(sequence + 1);
+            }
+            writer.write(format(change.published(++sequence, timestamp)));
+            writer.write('\n');
+            changesInSegment++;
+        }
+        writer.flush();
+
+        lastSequence = sequence;
+
+        synchronized (newChanges) {
+            newChanges.notifyAll();
+        }
+    }
+
+    private void startSegment(long firstSequence) throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+
+        File segment = new File(directory, String.format("%020d", firstSequence) + SEGMENT_SUFFIX);
+        writer = openWriter(segment);
+        changesInSegment = 0;
+        segments.put(firstSequence, segment);
+
+        deleteOldSegments();
+    }
+
+    /**
+     * Delete segments beyond the number of retained ones, oldest first.
+     */
+    private void deleteOldSegments() {
+        if (retainedSegments <= 0) {
+            return;
+        }
+
+        while (segments.size() > retainedSegments) {
+            File segment = segments.pollFirstEntry().getValue();
+            if (segment.delete()) {
+                LOG.info("Deleted change log segment {}", segment);
+            } else {
+                LOG.warn("Could not delete change log segment {}", segment);
+            }
+        }
+    }
+
+    private Writer openWriter(File segment) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(segment, true), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read changes from the log.
+     *
+     * @param since sequence number of the last change already seen by the reader, 0 to read from the beginning.
+     * @param limit maximum number of changes to return.
+     * @return changes with sequence numbers greater than since, in order. Empty if there are none. If changes following
+     * since are no longer retained, the first returned change has a sequence number greater than since + 1.
+     * @throws IOException if the log can't be read.
+     */
+    List<UuidChange> read(long since, int limit) throws IOException {
+        long last = lastSequence;
+        if (since >= last || limit < 1) {
+            return Collections.emptyList();
+        }
+
+        List<UuidChange> result = new ArrayList<>();
+
+        Long first = segments.floorKey(since + 1);
+        if (first == null) {
+            first = segments.firstKey();
+        }
+
+        for (File segment : segments.tailMap(first).values()) {
+            if (!segment.exists()) {
+                //deleted since, as no longer retained
+                continue;
+            }
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(segment), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    UuidChange change = parse(line);
+                    if (change == null) {
+                        continue;
+                    }
+                    if (change.getSequence() > last) {
+                        return result;
+                    }
+                    if (change.getSequence() > since) {
+                        result.add(change);
+                        if (result.size() >= limit) {
+                            return result;
+                        }
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Open a reader of all changes in the log, in order, reading every segment only once. Segments last written to
+     * before the given time, whose changes are all older, are skipped.
+     *
+     * @param fromMillis time in ms since epoch.
+     * @return reader, must be closed.
+     */
+    Reader readFrom(long fromMillis) {
+        List<File> files = new ArrayList<>();
+        for (File segment : segments.values()) {
+            if (segment.lastModified() >= fromMillis) {
+                files.add(segment);
+            }
+        }
+        return new Reader(files.iterator(), lastSequence);
+    }
+
+    /**
+     * Sequential reader of changes, see {@link #readFrom(long)}.
+     */
+    final class Reader implements Closeable {
+
+        private final Iterator<File> segments;
+        private final long last;
+        private BufferedReader reader;
+
+        private Reader(Iterator<File> segments, long last) {
+            this.segments = segments;
+            this.last = last;
+        }
+
+        /**
+         * @return the next change, null if there are no more.
+         * @throws IOException if the log can't be read.
+         */
+        UuidChange next() throws IOException {
+            while (true) {
+                if (reader == null) {
+                    if (!segments.hasNext()) {
+                        return null;
+                    }
+                    File segment = segments.next();
+                    if (!segment.exists()) {
+                        //deleted since, as no longer retained
+                        continue;
+                    }
+                    reader = new BufferedReader(new InputStreamReader(new FileInputStream(segment), StandardCharsets.UTF_8));
+                }
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    UuidChange change = parse(line);
+                    if (change == null) {
+                        continue;
+                    }
+                    if (change.getSequence() > last) {
+                        return null;
+                    }
+                    return change;
+                }
+
+                reader.close();
+                reader = null;
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() throws IOException {
+            if (reader != null) {
+                reader.close();
+                reader = null;
+            }
+        }
+    }
+
+    /**
+     * Read changes from the log, waiting for new ones if there are none.
+     *
+     * @param since         sequence number of the last change already seen by the reader, 0 to read from the beginning.
+     * @param limit         maximum number of changes to return.
+     * @param timeoutMillis maximum time to wait for new changes.
+     * @return changes with sequence numbers greater than since, in order. Empty if there were none within the timeout.
+     * @throws IOException if the log can't be read.
+     */
+    List<UuidChange> poll(long since, int limit, long timeoutMillis) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        synchronized (newChanges) {
+            long remaining;
+            while (lastSequence <= since && (remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())) > 0) {
+                try {
+                    newChanges.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        return read(since, limit);
+    }
+
+    private String format(UuidChange change) {
+        return change.getSequence() + "\t" + change.getTimestamp() + "\t" + change.getType() + "\t" + change.getNodeId() + "\t" + escape(change.getUuid().toString());
+    }
+
+    private UuidChange parse(String line) {
+        String[] fields = line.split("\t", 5);
+        if (fields.length < 5) {
+            return null;
+        }
+
+        try {
+            return new UuidChange(
+                    Long.parseLong(fields[0]),
+                    Long.parseLong(fields[1]),
+                    UuidChange.Type.valueOf(fields[2]),
+                    Long.parseLong(fields[3]),
+                    numeric ? Long.parseLong(fields[4]) : unescape(fields[4]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Escape a value written to a tab-separated line: backslashes, tabs and line breaks are replaced by {@code \\},
+     * {@code \t}, {@code \n} and {@code \r}.
+     *
+     * @param value to escape.
+     * @return escaped value.
+     */
+    static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Reverse {@link #escape(String)}.
+     *
+     * @param value to unescape.
+     * @return unescaped value.
+     */
+    static String unescape(String value) {
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                c = value.charAt(++i);
+                switch (c) {
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                }
+            }
+            unescaped.append(c);
+        }
+        return unescaped.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Breakdown of time spent by {@link UuidModule} processing a single transaction, collected only when slow transaction
+ * logging is enabled.
+ */
+final class UuidCommitTimings {
+
+    private long generationNanos;
+    private long propertyWriteNanos;
+    private long validationNanos;
+
+    void generated(long nanos) {
+        generationNanos += nanos;
+    }
+
+    void propertyWritten(long nanos) {
+        propertyWriteNanos += nanos;
+    }
+
+    void validated(long nanos) {
+        validationNanos += nanos;
+    }
+
+    /**
+     * Produce a structured (key=value) record of a slow transaction.
+     *
+     * @param durationNanos  total time spent processing the transaction.
+     * @param createdNodes   number of created nodes in the transaction.
+     * @param changedNodes   number of changed nodes in the transaction.
+     * @param deletedNodes   number of deleted nodes in the transaction.
+     * @return record.
+     */
+    String toRecord(long durationNanos, int createdNodes, int changedNodes, int deletedNodes) {
+        return "durationMicros=" + TimeUnit.NANOSECONDS.toMicros(durationNanos) +
+                " createdNodes=" + createdNodes +
+                " changedNodes=" + changedNodes +
+                " deletedNodes=" + deletedNodes +
+                " generationMicros=" + TimeUnit.NANOSECONDS.toMicros(generationNanos) +
+                " propertyWriteMicros=" + TimeUnit.NANOSECONDS.toMicros(propertyWriteNanos) +
+                " validationMicros=" + TimeUnit.NANOSECONDS.toMicros(validationNanos) +
+                " thread=\"" + Thread.currentThread().getName() + "\"";
+    }
+}
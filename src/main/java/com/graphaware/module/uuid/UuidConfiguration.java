@@ -19,6 +19,10 @@ import com.graphaware.common.policy.InclusionPolicies;
 import com.graphaware.runtime.config.BaseTxDrivenModuleConfiguration;
 import com.graphaware.runtime.policy.InclusionPoliciesFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 
 /**
  * {@link BaseTxDrivenModuleConfiguration} for {@link com.graphaware.module.uuid.UuidModule}.
@@ -26,8 +30,28 @@ import com.graphaware.runtime.policy.InclusionPoliciesFactory;
 public class UuidConfiguration extends BaseTxDrivenModuleConfiguration<UuidConfiguration> {
 
     private static final String DEFAULT_UUID_PROPERTY = "uuid";
+    private static final int DEFAULT_UUID_CACHE_SIZE = 0;
 
     private String uuidProperty;
+    private int uuidCacheSize = DEFAULT_UUID_CACHE_SIZE;
+    private int nodeIdCacheSize;
+    private String warmUpFile;
+    private boolean warmUpIndexPages;
+    private int hotKeySampleRate;
+    private boolean auditOnStartup;
+    private long slowTransactionThresholdMillis;
+    private UuidEncoding encoding = UuidEncoding.HEX;
+    private UuidGeneratorType generatorType = UuidGeneratorType.EAIO;
+    private Long workerId;
+    private List<String> nameBasedKeys = Collections.emptyList();
+    private String nameBasedNamespace = NameBasedUuidGenerator.DEFAULT_NAMESPACE;
+    private String changeLogDirectory;
+    private int changeLogRetainedSegments;
+    private long tombstoneRetentionSeconds;
+    private boolean timeRangeIndex;
+    private List<String> schemaIndexLabels = Collections.emptyList();
+    private boolean uniqueConstraint;
+    private UuidProtectionMode protectionMode = UuidProtectionMode.STRICT;
 
     protected UuidConfiguration(InclusionPolicies inclusionPolicies) {
         super(inclusionPolicies);
@@ -41,9 +65,11 @@ public class UuidConfiguration extends BaseTxDrivenModuleConfiguration<UuidConfi
     /**
      * Create a default configuration with default uuid property = {@link #DEFAULT_UUID_PROPERTY}, labels=all (including nodes with no labels)
      * inclusion strategies = {@link com.graphaware.runtime.policy.InclusionPoliciesFactory#allBusiness()},
-     * (nothing is excluded except for framework-internal nodes and relationships)
+     * (nothing is excluded except for framework-internal nodes and relationships), no node ID to UUID cache,
+     * UUIDs generated by {@link UuidGeneratorType#EAIO} in the canonical ({@link UuidEncoding#HEX}) form.
      * <p/>
-     * Change this by calling {@link #withUuidProperty(String)}, with* other inclusion strategies
+     * Change this by calling {@link #withUuidProperty(String)}, {@link #withUuidCacheSize(int)}, {@link #withEncoding(UuidEncoding)},
+     * {@link #withGeneratorType(UuidGeneratorType)}, with* other inclusion strategies
      * on the object, always using the returned object (this is a fluent interface).
      */
     public static UuidConfiguration defaultConfiguration() {
@@ -55,13 +81,129 @@ public class UuidConfiguration extends BaseTxDrivenModuleConfiguration<UuidConfi
      */
     @Override
     protected UuidConfiguration newInstance(InclusionPolicies inclusionPolicies) {
-        return new UuidConfiguration(inclusionPolicies, getUuidProperty());
+        return copy(inclusionPolicies);
+    }
+
+    /**
+     * Create a copy of this configuration with all settings retained, but different inclusion policies.
+     *
+     * @param inclusionPolicies of the new instance.
+     * @return new instance.
+     */
+    private UuidConfiguration copy(InclusionPolicies inclusionPolicies) {
+        UuidConfiguration copy = new UuidConfiguration(inclusionPolicies, uuidProperty);
+        copy.uuidCacheSize = uuidCacheSize;
+        copy.nodeIdCacheSize = nodeIdCacheSize;
+        copy.warmUpFile = warmUpFile;
+        copy.warmUpIndexPages = warmUpIndexPages;
+        copy.hotKeySampleRate = hotKeySampleRate;
+        copy.auditOnStartup = auditOnStartup;
+        copy.slowTransactionThresholdMillis = slowTransactionThresholdMillis;
+        copy.encoding = encoding;
+        copy.generatorType = generatorType;
+        copy.workerId = workerId;
+        copy.nameBasedKeys = nameBasedKeys;
+        copy.nameBasedNamespace = nameBasedNamespace;
+        copy.changeLogDirectory = changeLogDirectory;
+        copy.changeLogRetainedSegments = changeLogRetainedSegments;
+        copy.tombstoneRetentionSeconds = tombstoneRetentionSeconds;
+        copy.timeRangeIndex = timeRangeIndex;
+        copy.schemaIndexLabels = schemaIndexLabels;
+        copy.uniqueConstraint = uniqueConstraint;
+        copy.protectionMode = protectionMode;
+        return copy;
     }
 
     public String getUuidProperty() {
         return uuidProperty;
     }
 
+    public int getUuidCacheSize() {
+        return uuidCacheSize;
+    }
+
+    public int getNodeIdCacheSize() {
+        return nodeIdCacheSize;
+    }
+
+    public String getWarmUpFile() {
+        return warmUpFile;
+    }
+
+    public boolean isWarmUpIndexPages() {
+        return warmUpIndexPages;
+    }
+
+    public int getHotKeySampleRate() {
+        return hotKeySampleRate;
+    }
+
+    public boolean isAuditOnStartup() {
+        return auditOnStartup;
+    }
+
+    public long getSlowTransactionThresholdMillis() {
+        return slowTransactionThresholdMillis;
+    }
+
+    public UuidEncoding getEncoding() {
+        return encoding;
+    }
+
+    public UuidGeneratorType getGeneratorType() {
+        return generatorType;
+    }
+
+    /**
+     * @return configured worker ID, 0 if none has been configured.
+     */
+    public long getWorkerId() {
+        return workerId != null ? workerId : 0;
+    }
+
+    /**
+     * @return true iff a worker ID has been configured (see {@link #withWorkerId(long)}).
+     */
+    public boolean hasWorkerId() {
+        return workerId != null;
+    }
+
+    public List<String> getNameBasedKeys() {
+        return nameBasedKeys;
+    }
+
+    public String getNameBasedNamespace() {
+        return nameBasedNamespace;
+    }
+
+    public String getChangeLogDirectory() {
+        return changeLogDirectory;
+    }
+
+    public int getChangeLogRetainedSegments() {
+        return changeLogRetainedSegments;
+    }
+
+    public long getTombstoneRetentionSeconds() {
+        return tombstoneRetentionSeconds;
+    }
+
+    public boolean isTimeRangeIndex() {
+        return timeRangeIndex;
+    }
+
+    public List<String> getSchemaIndexLabels() {
+        return schemaIndexLabels;
+    }
+
+    public boolean isUniqueConstraint() {
+        return uniqueConstraint;
+    }
+
+    public UuidProtectionMode getProtectionMode() {
+        return protectionMode;
+    }
+
     /**
      * Create a new instance of this {@link UuidConfiguration} with different uuid property.
      *
@@ -69,7 +211,262 @@ public class UuidConfiguration extends BaseTxDrivenModuleConfiguration<UuidConfi
      * @return new instance.
      */
     public UuidConfiguration withUuidProperty(String uuidProperty) {
-        return new UuidConfiguration(getInclusionPolicies(), uuidProperty);
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.uuidProperty = uuidProperty;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} with different size of the node ID to UUID cache.
+     *
+     * @param uuidCacheSize of the new instance, 0 or less disables the cache. Rounded up to the nearest power of two.
+     * @return new instance.
+     */
+    public UuidConfiguration withUuidCacheSize(int uuidCacheSize) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.uuidCacheSize = uuidCacheSize;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} with different size of the UUID to node ID cache, which
+     * serves lookups with {@link UuidConsistency#EVENTUAL} consistency.
+     *
+     * @param nodeIdCacheSize of the new instance, 0 or less disables the cache. Rounded up to the nearest power of two.
+     * @return new instance.
+     */
+    public UuidConfiguration withNodeIdCacheSize(int nodeIdCacheSize) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.nodeIdCacheSize = nodeIdCacheSize;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} with a different file to save the UUID to node ID cache
+     * to when the database shuts down, and to warm the cache up from when it starts.
+     *
+     * @param warmUpFile of the new instance, null for no warm-up.
+     * @return new instance.
+     */
+    public UuidConfiguration withWarmUpFile(String warmUpFile) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.warmUpFile = warmUpFile;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} that looks UUIDs loaded from the {@link #getWarmUpFile()}
+     * up through the indexes, which brings index pages into the page cache, rather than just verifying them against
+     * the store.
+     *
+     * @param warmUpIndexPages true iff the new instance should warm up index pages.
+     * @return new instance.
+     */
+    public UuidConfiguration withWarmUpIndexPages(boolean warmUpIndexPages) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.warmUpIndexPages = warmUpIndexPages;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} with a different rate of sampling lookups by UUID to track
+     * the most looked up UUIDs (see {@link UuidHotKeys}).
+     *
+     * @param hotKeySampleRate of the new instance, one in this many lookups is sampled. 0 or less disables tracking.
+     * @return new instance.
+     */
+    public UuidConfiguration withHotKeySampleRate(int hotKeySampleRate) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.hotKeySampleRate = hotKeySampleRate;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} that does or doesn't audit UUIDs in the background on startup.
+     *
+     * @param auditOnStartup true iff the new instance should run a {@link UuidAuditor} on startup.
+     * @return new instance.
+     */
+    public UuidConfiguration withAuditOnStartup(boolean auditOnStartup) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.auditOnStartup = auditOnStartup;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} with different slow transaction threshold. Transactions
+     * for which the module spends more than the threshold assigning and validating UUIDs are logged, along with a
+     * breakdown of where the time went.
+     *
+     * @param slowTransactionThresholdMillis threshold in milliseconds, 0 or less disables slow transaction logging.
+     * @return new instance.
+     */
+    public UuidConfiguration withSlowTransactionThresholdMillis(long slowTransactionThresholdMillis) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.slowTransactionThresholdMillis = slowTransactionThresholdMillis;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} with different encoding of generated UUIDs.
+     *
+     * @param encoding of the new instance.
+     * @return new instance.
+     */
+    public UuidConfiguration withEncoding(UuidEncoding encoding) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.encoding = encoding;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} with different type of UUID generator.
+     *
+     * @param generatorType of the new instance.
+     * @return new instance.
+     */
+    public UuidConfiguration withGeneratorType(UuidGeneratorType generatorType) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.generatorType = generatorType;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} with different worker ID, which identifies this generator
+     * of UUIDs among all generators producing UUIDs for the same graph. Only used by generators that need it, such as
+     * {@link UuidGeneratorType#SNOWFLAKE} and {@link UuidGeneratorType#STRIPED}.
+     *
+     * @param workerId of the new instance.
+     * @return new instance.
+     */
+    public UuidConfiguration withWorkerId(long workerId) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.workerId = workerId;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} with different key properties, from which
+     * {@link UuidGeneratorType#NAME_BASED} UUIDs are derived (along with node labels).
+     *
+     * @param nameBasedKeys names of the key properties of the new instance, in the order their values are hashed.
+     * @return new instance.
+     */
+    public UuidConfiguration withNameBasedKeys(List<String> nameBasedKeys) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.nameBasedKeys = Collections.unmodifiableList(new ArrayList<>(nameBasedKeys));
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} with different namespace of {@link UuidGeneratorType#NAME_BASED}
+     * UUIDs. Graphs whose nodes should get the same UUIDs for the same keys must use the same namespace.
+     *
+     * @param nameBasedNamespace canonical form of the namespace UUID of the new instance.
+     * @return new instance.
+     */
+    public UuidConfiguration withNameBasedNamespace(String nameBasedNamespace) {
+        if (!UuidEncoding.HEX.isValid(nameBasedNamespace)) {
+            throw new IllegalArgumentException(nameBasedNamespace + " is not a valid UUID");
+        }
+
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.nameBasedNamespace = nameBasedNamespace;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} with different change log directory. When set, UUIDs
+     * assigned and deleted by committed transactions are appended to a {@link UuidChangeLog} in the directory.
+     *
+     * @param changeLogDirectory of the new instance, null disables the change log.
+     * @return new instance.
+     */
+    public UuidConfiguration withChangeLogDirectory(String changeLogDirectory) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.changeLogDirectory = changeLogDirectory;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} with different change log retention. Only this many most
+     * recent segments of the {@link UuidChangeLog} are kept, older ones are deleted. Consumers that fall behind the oldest
+     * retained change must resynchronize from the graph.
+     *
+     * @param changeLogRetainedSegments of the new instance, 0 or less retains all segments.
+     * @return new instance.
+     */
+    public UuidConfiguration withChangeLogRetainedSegments(int changeLogRetainedSegments) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.changeLogRetainedSegments = changeLogRetainedSegments;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} with different tombstone retention. UUIDs of deleted nodes
+     * are remembered for this long, so that looking them up fails with {@link UuidDeletedException} rather than
+     * {@link org.neo4j.graphdb.NotFoundException}.
+     *
+     * @param tombstoneRetentionSeconds of the new instance, 0 or less disables tombstones.
+     * @return new instance.
+     */
+    public UuidConfiguration withTombstoneRetentionSeconds(long tombstoneRetentionSeconds) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.tombstoneRetentionSeconds = tombstoneRetentionSeconds;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} that does or doesn't index nodes by the time their UUIDs
+     * have been generated, which allows finding nodes created in a time range. Only time-based UUIDs (i.e. those generated
+     * by {@link UuidGeneratorType#EAIO}, {@link UuidGeneratorType#STRIPED} and {@link UuidGeneratorType#SNOWFLAKE}) are indexed.
+     *
+     * @param timeRangeIndex true iff the new instance should maintain the index.
+     * @return new instance.
+     */
+    public UuidConfiguration withTimeRangeIndex(boolean timeRangeIndex) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.timeRangeIndex = timeRangeIndex;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} with different labels to create schema indexes (or
+     * uniqueness constraints, see {@link #withUniqueConstraint(boolean)}) on the UUID property for. The indexes are
+     * created when the module is initialized. These should be the labels of nodes included by the node inclusion policy.
+     *
+     * @param schemaIndexLabels of the new instance, empty for no schema indexes.
+     * @return new instance.
+     */
+    public UuidConfiguration withSchemaIndexLabels(List<String> schemaIndexLabels) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.schemaIndexLabels = Collections.unmodifiableList(new ArrayList<>(schemaIndexLabels));
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} that creates uniqueness constraints rather than plain
+     * schema indexes on the UUID property of {@link #getSchemaIndexLabels()}.
+     *
+     * @param uniqueConstraint true iff the new instance should create uniqueness constraints.
+     * @return new instance.
+     */
+    public UuidConfiguration withUniqueConstraint(boolean uniqueConstraint) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.uniqueConstraint = uniqueConstraint;
+        return copy;
+    }
+
+    /**
+     * Create a new instance of this {@link UuidConfiguration} with different protection of UUIDs of existing nodes.
+     *
+     * @param protectionMode of the new instance.
+     * @return new instance.
+     */
+    public UuidConfiguration withProtectionMode(UuidProtectionMode protectionMode) {
+        UuidConfiguration copy = copy(getInclusionPolicies());
+        copy.protectionMode = protectionMode;
+        return copy;
     }
 
     /**
@@ -83,7 +480,27 @@ public class UuidConfiguration extends BaseTxDrivenModuleConfiguration<UuidConfi
 
         UuidConfiguration that = (UuidConfiguration) o;
 
+        if (uuidCacheSize != that.uuidCacheSize) return false;
+        if (nodeIdCacheSize != that.nodeIdCacheSize) return false;
+        if (warmUpFile != null ? !warmUpFile.equals(that.warmUpFile) : that.warmUpFile != null) return false;
+        if (warmUpIndexPages != that.warmUpIndexPages) return false;
+        if (hotKeySampleRate != that.hotKeySampleRate) return false;
+        if (auditOnStartup != that.auditOnStartup) return false;
+        if (slowTransactionThresholdMillis != that.slowTransactionThresholdMillis) return false;
         if (!uuidProperty.equals(that.uuidProperty)) return false;
+        if (encoding != that.encoding) return false;
+        if (generatorType != that.generatorType) return false;
+        if (workerId != null ? !workerId.equals(that.workerId) : that.workerId != null) return false;
+        if (!nameBasedKeys.equals(that.nameBasedKeys)) return false;
+        if (!nameBasedNamespace.equals(that.nameBasedNamespace)) return false;
+        if (changeLogDirectory != null ? !changeLogDirectory.equals(that.changeLogDirectory) : that.changeLogDirectory != null)
+            return false;
+        if (changeLogRetainedSegments != that.changeLogRetainedSegments) return false;
+        if (tombstoneRetentionSeconds != that.tombstoneRetentionSeconds) return false;
+        if (timeRangeIndex != that.timeRangeIndex) return false;
+        if (!schemaIndexLabels.equals(that.schemaIndexLabels)) return false;
+        if (uniqueConstraint != that.uniqueConstraint) return false;
+        if (protectionMode != that.protectionMode) return false;
 
         return true;
     }
@@ -95,6 +512,25 @@ public class UuidConfiguration extends BaseTxDrivenModuleConfiguration<UuidConfi
     public int hashCode() {
         int result = super.hashCode();
         result = 31 * result + uuidProperty.hashCode();
+        result = 31 * result + uuidCacheSize;
+        result = 31 * result + nodeIdCacheSize;
+        result = 31 * result + (warmUpFile != null ? warmUpFile.hashCode() : 0);
+        result = 31 * result + (warmUpIndexPages ? 1 : 0);
+        result = 31 * result + hotKeySampleRate;
+        result = 31 * result + (auditOnStartup ? 1 : 0);
+        result = 31 * result + (int) (slowTransactionThresholdMillis ^ (slowTransactionThresholdMillis >>> 32));
+        result = 31 * result + encoding.hashCode();
+        result = 31 * result + generatorType.hashCode();
+        result = 31 * result + (workerId != null ? workerId.hashCode() : 0);
+        result = 31 * result + nameBasedKeys.hashCode();
+        result = 31 * result + nameBasedNamespace.hashCode();
+        result = 31 * result + (changeLogDirectory != null ? changeLogDirectory.hashCode() : 0);
+        result = 31 * result + changeLogRetainedSegments;
+        result = 31 * result + (int) (tombstoneRetentionSeconds ^ (tombstoneRetentionSeconds >>> 32));
+        result = 31 * result + (timeRangeIndex ? 1 : 0);
+        result = 31 * result + schemaIndexLabels.hashCode();
+        result = 31 * result + (uniqueConstraint ? 1 : 0);
+        result = 31 * result + protectionMode.hashCode();
         return result;
     }
 }
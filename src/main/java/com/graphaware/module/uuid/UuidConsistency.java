@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+/**
+ * Consistency of looking up nodes by UUID, chosen per lookup.
+ */
+public enum UuidConsistency {
+
+    /**
+     * Read only the in-memory UUID to node ID cache. Fastest, but nodes created by recently committed transactions may
+     * not be found for a few milliseconds, and neither may nodes whose mapping isn't cached. Lookups are served with
+     * {@link #STRONG} consistency when the cache is disabled.
+     */
+    EVENTUAL,
+
+    /**
+     * Read the cache, falling back to the indexes on a miss. Nodes created by all committed transactions are found.
+     */
+    STRONG
+}
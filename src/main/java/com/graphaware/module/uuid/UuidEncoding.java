@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+/**
+ * String encodings of 128-bit UUIDs.
+ */
+public enum UuidEncoding {
+
+    /**
+     * Canonical 36-character form, e.g. {@code 123e4567-e89b-12d3-a456-426655440000}.
+     */
+    HEX(36) {
+        @Override
+        public String encode(long mostSignificantBits, long leastSignificantBits) {
+            char[] chars = new char[36];
+            hex(mostSignificantBits >>> 32, 8, chars, 0);
+            chars[8] = '-';
+            hex(mostSignificantBits >>> 16, 4, chars, 9);
+            chars[13] = '-';
+            hex(mostSignificantBits, 4, chars, 14);
+            chars[18] = '-';
+            hex(leastSignificantBits >>> 48, 4, chars, 19);
+            chars[23] = '-';
+            hex(leastSignificantBits, 12, chars, 24);
+            return new String(chars);
+        }
+
+        @Override
+        long[] decodeValid(String uuid) {
+            long[] bits = new long[2];
+            int digits = 0;
+            for (int i = 0; i < 36; i++) {
+                char c = uuid.charAt(i);
+                if (c == '-') {
+                    continue;
+                }
+                int index = digits++ / 16;
+                bits[index] = (bits[index] << 4) | Character.digit(c, 16);
+            }
+            return bits;
+        }
+
+        @Override
+        boolean hasValidCharacters(String uuid) {
+            for (int i = 0; i < 36; i++) {
+                char c = uuid.charAt(i);
+                if (i == 8 || i == 13 || i == 18 || i == 23) {
+                    if (c != '-') {
+                        return false;
+                    }
+                } else if (Character.digit(c, 16) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    },
+
+    /**
+     * 22-character URL-safe Base64 (RFC 4648 section 5) form without padding, e.g. {@code Ej5FZ-ibEtOkVkJmVUQAAA}.
+     */
+    BASE64URL(22) {
+        @Override
+        public String encode(long mostSignificantBits, long leastSignificantBits) {
+            char[] chars = new char[22];
+            int position = 0;
+
+            //16 bytes = 5 groups of 3 bytes (4 chars each) + 1 byte (2 chars)
+            for (int group = 0; group < 5; group++) {
+                int bits = (byteAt(mostSignificantBits, leastSignificantBits, group * 3) << 16)
+                        | (byteAt(mostSignificantBits, leastSignificantBits, group * 3 + 1) << 8)
+                        | byteAt(mostSignificantBits, leastSignificantBits, group * 3 + 2);
+                chars[position++] = BASE64URL_ALPHABET[(bits >>> 18) & 0x3F];
+                chars[position++] = BASE64URL_ALPHABET[(bits >>> 12) & 0x3F];
+                chars[position++] = BASE64URL_ALPHABET[(bits >>> 6) & 0x3F];
+                chars[position++] = BASE64URL_ALPHABET[bits & 0x3F];
+            }
+
+            int last = byteAt(mostSignificantBits, leastSignificantBits, 15);
+            chars[position++] = BASE64URL_ALPHABET[last >>> 2];
+            chars[position] = BASE64URL_ALPHABET[(last & 0x3) << 4];
+
+            return new String(chars);
+        }
+
+        @Override
+        long[] decodeValid(String uuid) {
+            long[] bits = new long[2];
+            int bitCount = 0;
+            for (int i = 0; i < 22; i++) {
+                int value = base64UrlValue(uuid.charAt(i));
+                for (int bit = 5; bit >= 0 && bitCount < 128; bit--, bitCount++) {
+                    int index = bitCount / 64;
+                    bits[index] = (bits[index] << 1) | ((value >>> bit) & 1);
+                }
+            }
+            return bits;
+        }
+
+        @Override
+        boolean hasValidCharacters(String uuid) {
+            for (int i = 0; i < 22; i++) {
+                if (base64UrlValue(uuid.charAt(i)) < 0) {
+                    return false;
+                }
+            }
+            //the last character only carries 2 bits, the remaining 4 must be zero
+            return (base64UrlValue(uuid.charAt(21)) & 0xF) == 0;
+        }
+    },
+
+    /**
+     * 22-character Base62 ({@code 0-9A-Za-z}) form, e.g. {@code 0YQJpYwUwvbaLOwTW34uS8}. Preserves the ordering of the
+     * underlying 128-bit values when compared lexicographically (in ASCII).
+     */
+    BASE62(22) {
+        @Override
+        public String encode(long mostSignificantBits, long leastSignificantBits) {
+            long[] limbs = {mostSignificantBits >>> 32, mostSignificantBits & 0xFFFFFFFFL, leastSignificantBits >>> 32, leastSignificantBits & 0xFFFFFFFFL};
+            char[] chars = new char[22];
+
+            for (int i = 21; i >= 0; i--) {
+                long remainder = 0;
+                for (int j = 0; j < 4; j++) {
+                    long current = (remainder << 32) | limbs[j];
+                    limbs[j] = current / 62;
+                    remainder = current % 62;
+                }
+                chars[i] = BASE62_ALPHABET[(int) remainder];
+            }
+
+            return new String(chars);
+        }
+
+        @Override
+        long[] decodeValid(String uuid) {
+            long[] limbs = new long[4];
+            for (int i = 0; i < 22; i++) {
+                long carry = base62Value(uuid.charAt(i));
+                for (int j = 3; j >= 0; j--) {
+                    long current = limbs[j] * 62 + carry;
+                    limbs[j] = current & 0xFFFFFFFFL;
+                    carry = current >>> 32;
+                }
+                if (carry != 0) {
+                    return null;
+                }
+            }
+            return new long[]{(limbs[0] << 32) | limbs[1], (limbs[2] << 32) | limbs[3]};
+        }
+
+        @Override
+        boolean hasValidCharacters(String uuid) {
+            for (int i = 0; i < 22; i++) {
+                if (base62Value(uuid.charAt(i)) < 0) {
+                    return false;
+                }
+            }
+            //22 Base62 digits can represent values larger than 128 bits
+            return decodeValid(uuid) != null;
+        }
+    };
+
+    private static final char[] HEX_ALPHABET = "0123456789abcdef".toCharArray();
+    private static final char[] BASE64URL_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final char[] BASE62_ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private final int length;
+
+    UuidEncoding(int length) {
+        this.length = length;
+    }
+
+    /**
+     * Encode a UUID.
+     *
+     * @param mostSignificantBits  of the UUID.
+     * @param leastSignificantBits of the UUID.
+     * @return encoded UUID.
+     */
+    public abstract String encode(long mostSignificantBits, long leastSignificantBits);
+
+    /**
+     * Decode a UUID.
+     *
+     * @param uuid encoded UUID.
+     * @return two-element array of most and least significant bits of the UUID.
+     * @throws IllegalArgumentException if the UUID isn't validly encoded in this encoding.
+     */
+    public long[] decode(String uuid) {
+        if (!isValid(uuid)) {
+            throw new IllegalArgumentException(uuid + " is not a valid " + name() + " encoded UUID");
+        }
+        return decodeValid(uuid);
+    }
+
+    /**
+     * Check whether a String is a validly encoded UUID in this encoding.
+     *
+     * @param uuid to check, can be null.
+     * @return true iff valid.
+     */
+    public boolean isValid(String uuid) {
+        return uuid != null && uuid.length() == length && hasValidCharacters(uuid);
+    }
+
+    /**
+     * Get the length of UUIDs encoded in this encoding.
+     *
+     * @return length in characters.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    abstract long[] decodeValid(String uuid);
+
+    abstract boolean hasValidCharacters(String uuid);
+
+    private static void hex(long value, int digits, char[] chars, int offset) {
+        for (int i = digits - 1; i >= 0; i--) {
+            chars[offset + i] = HEX_ALPHABET[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    private static int byteAt(long mostSignificantBits, long leastSignificantBits, int index) {
+        long bits = index < 8 ? mostSignificantBits : leastSignificantBits;
+        return (int) (bits >>> (56 - 8 * (index % 8))) & 0xFF;
+    }
+
+    private static int base64UrlValue(char c) {
+        if (c >= 'A' && c <= 'Z') return c - 'A';
+        if (c >= 'a' && c <= 'z') return c - 'a' + 26;
+        if (c >= '0' && c <= '9') return c - '0' + 52;
+        if (c == '-') return 62;
+        if (c == '_') return 63;
+        return -1;
+    }
+
+    private static int base62Value(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'A' && c <= 'Z') return c - 'A' + 10;
+        if (c >= 'a' && c <= 'z') return c - 'a' + 36;
+        return -1;
+    }
+}
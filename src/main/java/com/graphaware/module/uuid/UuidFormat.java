@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+/**
+ * Format of UUIDs assigned by the {@link UuidModule}, determined by the configured {@link UuidGeneratorType} and
+ * {@link UuidEncoding}.
+ */
+final class UuidFormat {
+
+    private final UuidEncoding encoding;
+    private final boolean numeric;
+
+    /**
+     * Construct a new format of String UUIDs.
+     *
+     * @param encoding of UUIDs.
+     */
+    UuidFormat(UuidEncoding encoding) {
+        this(encoding, false);
+    }
+
+    private UuidFormat(UuidEncoding encoding, boolean numeric) {
+        this.encoding = encoding;
+        this.numeric = numeric;
+    }
+
+    /**
+     * Create the format of UUIDs assigned by a module.
+     *
+     * @param configuration of the module.
+     * @return format.
+     */
+    static UuidFormat of(UuidConfiguration configuration) {
+        return new UuidFormat(configuration.getEncoding(), configuration.getGeneratorType().isNumeric());
+    }
+
+    /**
+     * Check whether a UUID property value is well-formed, i.e. a positive long for numeric UUIDs, or a String validly
+     * encoded in the configured encoding otherwise.
+     *
+     * @param value to check, can be null.
+     * @return true iff the value is a well-formed UUID.
+     */
+    boolean isValid(Object value) {
+        if (numeric) {
+            return value instanceof Long && (Long) value > 0;
+        }
+        return value instanceof String && encoding.isValid((String) value);
+    }
+
+    /**
+     * Normalize a UUID received on input to the form in which UUIDs are stored. Numeric UUIDs are parsed into a
+     * {@link Long}. String UUIDs can either be in the configured encoding or in the canonical ({@link UuidEncoding#HEX})
+     * form and are converted to the configured encoding.
+     *
+     * @param uuid to normalize.
+     * @return normalized UUID, or the given UUID unchanged if it isn't valid.
+     */
+    Object normalize(String uuid) {
+        if (numeric) {
+            try {
+                return Long.parseLong(uuid);
+            } catch (NumberFormatException e) {
+                return uuid;
+            }
+        }
+
+        if (encoding == UuidEncoding.HEX) {
+            return UuidEncoding.HEX.isValid(uuid) ? uuid.toLowerCase() : uuid;
+        }
+
+        if (encoding.isValid(uuid) || !UuidEncoding.HEX.isValid(uuid)) {
+            return uuid;
+        }
+
+        long[] bits = UuidEncoding.HEX.decode(uuid);
+        return encoding.encode(bits[0], bits[1]);
+    }
+}
@@ -18,13 +18,15 @@ package com.graphaware.module.uuid;
 
 /**
  * A UUID generator.
+ *
+ * @param <T> type of generated UUIDs, i.e. the type of the property values the UUIDs are stored as.
  */
-interface UuidGenerator {
+interface UuidGenerator<T> {
 
     /**
      * Generate a UUID.
      *
      * @return the UUID.
      */
-    String generateUuid();
+    T generateUuid();
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+/**
+ * Types of {@link UuidGenerator}s the {@link UuidModule} can be configured to use.
+ */
+public enum UuidGeneratorType {
+
+    /**
+     * 128-bit time-based UUIDs generated by {@link EaioUuidGenerator}, stored as Strings in the configured
+     * {@link UuidEncoding}.
+     */
+    EAIO(false) {
+        @Override
+        UuidGenerator<?> createGenerator(UuidConfiguration configuration) {
+            return new EaioUuidGenerator(configuration.getEncoding());
+        }
+    },
+
+    /**
+     * 128-bit time-based UUIDs generated by {@link StripedUuidGenerator}, which avoids contention between threads
+     * generating UUIDs concurrently and is partitioned by the worker ID, if one has been configured. Stored as Strings in
+     * the configured {@link UuidEncoding}.
+     */
+    STRIPED(false) {
+        @Override
+        UuidGenerator<?> createGenerator(UuidConfiguration configuration) {
+            if (!configuration.hasWorkerId()) {
+                return new StripedUuidGenerator(configuration.getEncoding());
+            }
+            return new StripedUuidGenerator(configuration.getEncoding(), configuration.getWorkerId());
+        }
+    },
+
+    /**
+     * Deterministic 128-bit name-based (version 5) UUIDs generated by {@link NameBasedUuidGenerator} from node labels
+     * and the configured key properties, stored as Strings in the configured {@link UuidEncoding}.
+     */
+    NAME_BASED(false) {
+        @Override
+        UuidGenerator<?> createGenerator(UuidConfiguration configuration) {
+            return new NameBasedUuidGenerator(configuration.getEncoding(), configuration.getNameBasedKeys(), configuration.getNameBasedNamespace());
+        }
+    },
+
+    /**
+     * 64-bit k-ordered IDs generated by {@link SnowflakeUuidGenerator} using the configured worker ID, stored as longs.
+     */
+    SNOWFLAKE(true) {
+        @Override
+        UuidGenerator<?> createGenerator(UuidConfiguration configuration) {
+            return new SnowflakeUuidGenerator(configuration.getWorkerId());
+        }
+    };
+
+    private final boolean numeric;
+
+    UuidGeneratorType(boolean numeric) {
+        this.numeric = numeric;
+    }
+
+    /**
+     * Create a generator of this type.
+     *
+     * @param configuration of the module the generator is for.
+     * @return generator.
+     */
+    abstract UuidGenerator<?> createGenerator(UuidConfiguration configuration);
+
+    /**
+     * @return true iff generators of this type produce numeric ({@code long}) UUIDs, false iff they produce Strings.
+     */
+    public boolean isNumeric() {
+        return numeric;
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Approximate tracker of the most looked up ("hot") UUIDs. One in {@link #getSampleRate()} lookups is recorded in a
+ * Count-Min Sketch, and UUIDs whose estimated count is among the highest are kept in a small top-k table.
+ * <p/>
+ * Recording is lock-free: the sketch is an array of atomic counters and the top-k table an array of immutable entries
+ * replaced by CAS. A lost race can leave a UUID in the table twice or with a slightly low count, which only makes the
+ * (already approximate) result a bit less precise. Counts are halved periodically, so that the tracker follows what is
+ * hot now rather than since startup.
+ */
+public class UuidHotKeys implements UuidHotKeysMBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UuidHotKeys.class);
+
+    static final int TOP_K = 100;
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 1 << 12;
+    private static final long AGING_INTERVAL = WIDTH * 10L;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final int sampleRate;
+    private final AtomicLongArray sketch = new AtomicLongArray(DEPTH * WIDTH);
+    private final AtomicReferenceArray<Candidate> top = new AtomicReferenceArray<>(TOP_K);
+    private final AtomicLong sampledLookups = new AtomicLong();
+    private volatile long threshold;
+
+    private ObjectName objectName;
+
+    /**
+     * Construct a new tracker.
+     *
+     * @param sampleRate record one in this many lookups. Must be positive.
+     */
+    UuidHotKeys(int sampleRate) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("Sample rate must be positive");
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Record a lookup of a UUID, if it is sampled.
+     *
+     * @param uuid looked up, normalized.
+     */
+    void lookedUp(Object uuid) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+
+        long estimate = increment(uuid.hashCode());
+        if (estimate > threshold) {
+            offer(uuid, estimate);
+        }
+
+        if (sampledLookups.incrementAndGet() % AGING_INTERVAL == 0) {
+            age();
+        }
+    }
+
+    /**
+     * Increment the counters of a key in every row of the sketch.
+     *
+     * @return estimated count of the key, i.e. the minimum of its counters.
+     */
+    private long increment(int hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, sketch.incrementAndGet(row * WIDTH + column(hash, row)));
+        }
+        return estimate;
+    }
+
+    private int column(int hash, int row) {
+        int h = hash * SEEDS[row];
+        return (h ^ (h >>> 16)) & (WIDTH - 1);
+    }
+
+    /**
+     * Offer a UUID to the top-k table. Replaces its entry, a free slot, or the coldest entry, whichever comes first.
+     */
+    private void offer(Object uuid, long estimate) {
+        int coldestSlot = -1;
+        Candidate coldest = null;
+
+        for (int slot = 0; slot < TOP_K; slot++) {
+            Candidate candidate = top.get(slot);
+            if (candidate == null) {
+                top.compareAndSet(slot, null, new Candidate(uuid, estimate));
+                return;
+            }
+
+            if (candidate.uuid.equals(uuid)) {
+                if (candidate.count < estimate) {
+                    top.compareAndSet(slot, candidate, new Candidate(uuid, estimate));
+                }
+                return;
+            }
+
+            if (coldest == null || candidate.count < coldest.count) {
+                coldestSlot = slot;
+                coldest = candidate;
+            }
+        }
+
+        if (estimate > coldest.count) {
+            top.compareAndSet(coldestSlot, coldest, new Candidate(uuid, estimate));
+        }
+
+        //entries only get hotter until the next aging, so the coldest one is a lower bound for newcomers
+        threshold = coldest.count;
+    }
+
+    /**
+     * Halve all counts.
+     */
+    private void age() {
+        for (int i = 0; i < sketch.length(); i++) {
+            long count;
+            do {
+                count = sketch.get(i);
+            } while (count > 0 && !sketch.compareAndSet(i, count, count >>> 1));
+        }
+
+        for (int slot = 0; slot < TOP_K; slot++) {
+            Candidate candidate = top.get(slot);
+            if (candidate != null) {
+                top.compareAndSet(slot, candidate, candidate.count > 1 ? new Candidate(candidate.uuid, candidate.count >>> 1) : null);
+            }
+        }
+
+        threshold = 0;
+    }
+
+    /**
+     * Get the most looked up UUIDs.
+     *
+     * @param limit maximum number of UUIDs to return, at most {@link #TOP_K} are tracked.
+     * @return UUID to estimated number of lookups, hottest first.
+     */
+    public Map<Object, Long> getTop(int limit) {
+        Map<Object, Long> counts = new HashMap<>();
+        for (int slot = 0; slot < TOP_K; slot++) {
+            Candidate candidate = top.get(slot);
+            if (candidate != null) {
+                Long count = counts.get(candidate.uuid);
+                counts.put(candidate.uuid, count == null ? candidate.count : Math.max(count, candidate.count));
+            }
+        }
+
+        List<Map.Entry<Object, Long>> entries = new ArrayList<>(counts.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<Object, Long>>() {
+            @Override
+            public int compare(Map.Entry<Object, Long> o1, Map.Entry<Object, Long> o2) {
+                return Long.compare(o2.getValue(), o1.getValue());
+            }
+        });
+
+        Map<Object, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<Object, Long> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            result.put(entry.getKey(), entry.getValue() * sampleRate);
+        }
+        return result;
+    }
+
+    /**
+     * Get the distribution of counts in the sketch, i.e. how many counters (of the first row, each roughly
+     * corresponding to a UUID or a few colliding ones) have a count in each power-of-two range.
+     *
+     * @return range (e.g. "4-7") to number of counters, empty ranges are omitted.
+     */
+    public Map<String, Long> getCounts() {
+        long[] buckets = new long[64];
+        for (int column = 0; column < WIDTH; column++) {
+            long count = sketch.get(column) * sampleRate;
+            if (count > 0) {
+                buckets[63 - Long.numberOfLeadingZeros(count)]++;
+            }
+        }
+
+        Map<String, Long> distribution = new LinkedHashMap<>();
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            if (buckets[bucket] > 0) {
+                long from = 1L << bucket;
+                distribution.put(bucket == 0 ? "1" : from + "-" + (from * 2 - 1), buckets[bucket]);
+            }
+        }
+        return distribution;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSampledLookups() {
+        return sampledLookups.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getTopUuids() {
+        return toStrings(getTop(TOP_K));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getCountDistribution() {
+        return toStrings(getCounts());
+    }
+
+    /**
+     * Take a snapshot of the statistics.
+     *
+     * @param limit maximum number of top UUIDs to include.
+     * @return statistic name to value map.
+     */
+    public Map<String, Object> snapshot(int limit) {
+        List<Map<String, Object>> topUuids = new ArrayList<>();
+        for (Map.Entry<Object, Long> entry : getTop(limit).entrySet()) {
+            Map<String, Object> uuid = new LinkedHashMap<>();
+            uuid.put("uuid", entry.getKey());
+            uuid.put("count", entry.getValue());
+            topUuids.add(uuid);
+        }
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("sampleRate", getSampleRate());
+        snapshot.put("sampledLookups", getSampledLookups());
+        snapshot.put("topUuids", topUuids);
+        snapshot.put("countDistribution", getCounts());
+        return snapshot;
+    }
+
+    private String[] toStrings(Map<?, Long> map) {
+        List<String> strings = new ArrayList<>(map.size());
+        for (Map.Entry<?, Long> entry : map.entrySet()) {
+            strings.add(entry.getKey() + "=" + entry.getValue());
+        }
+        return strings.toArray(new String[strings.size()]);
+    }
+
+    /**
+     * Register with the platform MBean server, replacing statistics of a previous module with the same ID, if any.
+     *
+     * @param moduleId ID of the module the statistics belong to.
+     */
+    void register(String moduleId) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName("com.graphaware.module.uuid:type=UuidHotKeys,module=" + ObjectName.quote(moduleId));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+        } catch (Exception e) {
+            LOG.warn("Could not register UUID hot key statistics with JMX", e);
+            objectName = null;
+        }
+    }
+
+    /**
+     * Unregister from the platform MBean server, if registered.
+     */
+    void unregister() {
+        if (objectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            LOG.warn("Could not unregister UUID hot key statistics from JMX", e);
+        }
+        objectName = null;
+    }
+
+    private static final class Candidate {
+        private final Object uuid;
+        private final long count;
+
+        private Candidate(Object uuid, long count) {
+            this.uuid = uuid;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+/**
+ * JMX view of {@link UuidHotKeys}. Counts are estimated numbers of lookups, scaled up by the sample rate.
+ */
+public interface UuidHotKeysMBean {
+
+    int getSampleRate();
+
+    long getSampledLookups();
+
+    /**
+     * @return most looked up UUIDs, hottest first, each as "uuid=count".
+     */
+    String[] getTopUuids();
+
+    /**
+     * @return numbers of sketch counters per power-of-two count range, each as "range=counters".
+     */
+    String[] getCountDistribution();
+}
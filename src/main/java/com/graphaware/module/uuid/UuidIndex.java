@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.PrefixQuery;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.index.Index;
+import org.neo4j.graphdb.index.IndexHits;
+import org.neo4j.graphdb.index.IndexManager;
+
+/**
+ * Legacy (Lucene) index of nodes by their UUID. All methods must be called within a transaction.
+ * <p/>
+ * The index can be rebuilt online (see {@link UuidIndexRebuild}), so there can be several generations of it: the
+ * original one named {@link Indexes#UUID_NODE_INDEX}, and rebuilt ones named {@link Indexes#UUID_NODE_INDEX}-1,
+ * {@link Indexes#UUID_NODE_INDEX}-2, etc. Rebuilt indexes are marked complete (in their configuration) once fully
+ * built. Reads go to the active index, which is the highest complete generation. During a rebuild, writes go to both
+ * the active index and the one being built. Generations replaced by a rebuild are only deleted on the next start
+ * (see {@link #deleteRetired(GraphDatabaseService)}), as transactions in flight during the swap can still write to them.
+ */
+class UuidIndex {
+
+    static final String COMPLETE = "uuid_index_complete";
+
+    private final String uuidProperty;
+    private volatile String activeName;
+    private volatile String rebuildName;
+
+    /**
+     * Construct a new index.
+     *
+     * @param configuration of the {@link UuidModule} maintaining the index.
+     */
+    UuidIndex(UuidConfiguration configuration) {
+        this.uuidProperty = configuration.getUuidProperty();
+    }
+
+    /**
+     * Index a node by its UUID.
+     *
+     * @param node to index.
+     * @param uuid of the node.
+     */
+    void add(Node node, Object uuid) {
+        addEntry(node, uuidProperty, uuid);
+    }
+
+    /**
+     * Index a node by an arbitrary key, e.g. the one used by {@link UuidTimeIndex}.
+     *
+     * @param node  to index.
+     * @param key   of the entry.
+     * @param value of the entry.
+     */
+    void addEntry(Node node, String key, Object value) {
+        GraphDatabaseService database = node.getGraphDatabase();
+        active(database).add(node, key, value);
+
+        Index<Node> rebuild = rebuildTarget(database);
+        if (rebuild != null) {
+            rebuild.add(node, key, value);
+        }
+    }
+
+    /**
+     * Index a node by its UUID, unless another node is already indexed by the same UUID. The UUID is locked until the
+     * end of the transaction, so that concurrent transactions can't index another node by it in the meantime.
+     *
+     * @param node to index.
+     * @param uuid of the node.
+     * @return the node already indexed by the UUID, null if there was none and the given node has been indexed.
+     */
+    Node addIfAbsent(Node node, Object uuid) {
+        GraphDatabaseService database = node.getGraphDatabase();
+        Node existing = active(database).putIfAbsent(node, uuidProperty, uuid);
+
+        Index<Node> rebuild = rebuildTarget(database);
+        if (existing == null && rebuild != null) {
+            rebuild.add(node, uuidProperty, uuid);
+        }
+
+        return existing;
+    }
+
+    /**
+     * Find a node by its UUID.
+     *
+     * @param database to search.
+     * @param uuid     of the node.
+     * @return the node indexed by the UUID, null if there is none.
+     */
+    Node get(GraphDatabaseService database, Object uuid) {
+        return active(database).get(uuidProperty, uuid).getSingle();
+    }
+
+    /**
+     * Find nodes whose UUIDs start with a prefix. This is a Lucene prefix query, i.e. a walk over the sorted terms
+     * of the index, not a scan of nodes.
+     *
+     * @param database to search.
+     * @param prefix   of the UUIDs, as stored (numeric UUIDs are matched by their decimal representation).
+     * @return matching nodes, must be closed when not fully iterated.
+     */
+    IndexHits<Node> findByPrefix(GraphDatabaseService database, String prefix) {
+        return query(database, new PrefixQuery(new Term(uuidProperty, prefix)));
+    }
+
+    /**
+     * Query the index.
+     *
+     * @param database to search.
+     * @param query    Lucene query or {@link org.neo4j.index.lucene.QueryContext}.
+     * @return matching nodes, must be closed when not fully iterated.
+     */
+    IndexHits<Node> query(GraphDatabaseService database, Object query) {
+        return active(database).query(query);
+    }
+
+    /**
+     * Remove a node from the index.
+     *
+     * @param node to remove.
+     * @param uuid of the node.
+     */
+    void remove(Node node, Object uuid) {
+        removeEntry(node, uuidProperty, uuid);
+    }
+
+    /**
+     * Remove an entry added by {@link #addEntry(Node, String, Object)}.
+     *
+     * @param node  to remove.
+     * @param key   of the entry.
+     * @param value of the entry.
+     */
+    void removeEntry(Node node, String key, Object value) {
+        GraphDatabaseService database = node.getGraphDatabase();
+        active(database).remove(node, key, value);
+
+        Index<Node> rebuild = rebuildTarget(database);
+        if (rebuild != null) {
+            rebuild.remove(node, key, value);
+        }
+    }
+
+    /**
+     * Remove all entries of a node, whatever UUID (and other values) it has been indexed by.
+     *
+     * @param node to remove.
+     */
+    void removeAll(Node node) {
+        GraphDatabaseService database = node.getGraphDatabase();
+        active(database).remove(node);
+
+        Index<Node> rebuild = rebuildTarget(database);
+        if (rebuild != null) {
+            rebuild.remove(node);
+        }
+    }
+
+    /**
+     * Start writing to a new generation of the index, in addition to the active one. Incomplete generations left
+     * behind by failed rebuilds are deleted.
+     *
+     * @param database to create the index in.
+     * @return the new index.
+     */
+    synchronized Index<Node> startRebuild(GraphDatabaseService database) {
+        if (rebuildName != null) {
+            throw new IllegalStateException("UUID index " + rebuildName + " is already being rebuilt");
+        }
+
+        IndexManager indexManager = database.index();
+        String active = activeName(database);
+        int highestGeneration = generation(active);
+
+        for (String name : indexManager.nodeIndexNames()) {
+            int generation = generation(name);
+            if (generation > generation(active)) {
+                indexManager.forNodes(name).delete();
+            }
+            highestGeneration = Math.max(highestGeneration, generation);
+        }
+
+        rebuildName = Indexes.UUID_NODE_INDEX + "-" + (highestGeneration + 1);
+        return indexManager.forNodes(rebuildName);
+    }
+
+    /**
+     * @param database the index is in.
+     * @return the index being rebuilt, null if no rebuild is in progress.
+     */
+    Index<Node> rebuildTarget(GraphDatabaseService database) {
+        String name = rebuildName;
+        return name != null ? database.index().forNodes(name) : null;
+    }
+
+    /**
+     * Mark the index being rebuilt complete and make it the active one. The previously active index is kept until
+     * {@link #deleteRetired(GraphDatabaseService)} is called.
+     *
+     * @param database the index is in.
+     */
+    synchronized void completeRebuild(GraphDatabaseService database) {
+        IndexManager indexManager = database.index();
+        Index<Node> rebuilt = indexManager.forNodes(rebuildName);
+        indexManager.setConfiguration(rebuilt, COMPLETE, "true");
+
+        activeName = rebuildName;
+        rebuildName = null;
+    }
+
+    /**
+     * Delete generations of the index older than the active one, replaced by a rebuild. Must only be called when no
+     * transactions are writing to the index, i.e. when the database starts.
+     *
+     * @param database the index is in.
+     * @return number of deleted generations.
+     */
+    synchronized int deleteRetired(GraphDatabaseService database) {
+        IndexManager indexManager = database.index();
+        int active = generation(activeName(database));
+
+        int deleted = 0;
+        for (String name : indexManager.nodeIndexNames()) {
+            int generation = generation(name);
+            if (generation >= 0 && generation < active) {
+                indexManager.forNodes(name).delete();
+                deleted++;
+            }
+        }
+
+        return deleted;
+    }
+
+    /**
+     * Stop writing to and delete the index being rebuilt.
+     *
+     * @param database the index is in.
+     */
+    synchronized void abortRebuild(GraphDatabaseService database) {
+        Index<Node> rebuild = rebuildTarget(database);
+        rebuildName = null;
+        if (rebuild != null) {
+            rebuild.delete();
+        }
+    }
+
+    /**
+     * @param database the index is in.
+     * @return name of the active index.
+     */
+    String activeName(GraphDatabaseService database) {
+        String name = activeName;
+        if (name == null) {
+            name = resolveActiveName(database);
+        }
+        return name;
+    }
+
+    private Index<Node> active(GraphDatabaseService database) {
+        return database.index().forNodes(activeName(database));
+    }
+
+    private synchronized String resolveActiveName(GraphDatabaseService database) {
+        if (activeName != null) {
+            return activeName;
+        }
+
+        IndexManager indexManager = database.index();
+        String active = Indexes.UUID_NODE_INDEX;
+        for (String name : indexManager.nodeIndexNames()) {
+            int generation = generation(name);
+            if (generation > generation(active) && "true".equals(indexManager.getConfiguration(indexManager.forNodes(name)).get(COMPLETE))) {
+                active = name;
+            }
+        }
+
+        activeName = active;
+        return active;
+    }
+
+    /**
+     * @return generation of an index of nodes by UUID, -1 if the index isn't one.
+     */
+    private int generation(String indexName) {
+        if (indexName.equals(Indexes.UUID_NODE_INDEX)) {
+            return 0;
+        }
+
+        if (indexName.startsWith(Indexes.UUID_NODE_INDEX + "-")) {
+            try {
+                return Integer.parseInt(indexName.substring(Indexes.UUID_NODE_INDEX.length() + 1));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import com.graphaware.common.policy.NodeInclusionPolicy;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.index.Index;
+import org.neo4j.graphdb.index.IndexHits;
+import org.neo4j.index.lucene.ValueContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Online rebuild of the {@link UuidIndex}, run in the background. Builds a new generation of the index from a parallel
+ * scan of all nodes, while lookups keep being served by the current one, then swaps the new one in. The old one is
+ * deleted on the next start, when no transaction can be writing to it anymore.
+ * <p/>
+ * Transactions committed while the index is being built are written to both indexes, but a partition of the scan
+ * could overwrite them with what it read before they committed. To prevent that, scanned nodes are read-locked until
+ * their partition commits, so that concurrent modifications and deletions of them wait for it. On top of that, changes
+ * to nodes in partitions being scanned are held as {@link UuidChange}s until the partition is committed, and then
+ * replayed onto the new index, so the buffer never holds more than the changes to partitions in progress. Changes to
+ * nodes in partitions not scanned yet are dropped, the scan will see them.
+ */
+public class UuidIndexRebuild implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UuidIndexRebuild.class);
+
+    private static final int PARTITION_SIZE = 10_000;
+    private static final int REPLAY_BATCH_SIZE = 1000;
+
+    private final GraphDatabaseService database;
+    private final UuidConfiguration configuration;
+    private final UuidIndex uuidIndex;
+    private final UuidTimeIndex timeIndex;
+
+    private final Queue<UuidChange> buffer = new ConcurrentLinkedQueue<>();
+    private final Map<Long, List<UuidChange>> scanning = new HashMap<>();
+    private final Set<Long> scanned = new HashSet<>();
+    private final AtomicLong indexedNodes = new AtomicLong();
+    private final AtomicLong duplicateUuids = new AtomicLong();
+    private final AtomicLong replayedChanges = new AtomicLong();
+    private volatile String indexName;
+    private volatile boolean finished;
+    private volatile boolean failed;
+
+    /**
+     * Construct a new rebuild.
+     *
+     * @param database      whose index to rebuild.
+     * @param configuration of the module.
+     * @param uuidIndex     to rebuild.
+     * @param timeIndex     kept in the same index, null if disabled.
+     */
+    UuidIndexRebuild(GraphDatabaseService database, UuidConfiguration configuration, UuidIndex uuidIndex, UuidTimeIndex timeIndex) {
+        this.database = database;
+        this.configuration = configuration;
+        this.uuidIndex = uuidIndex;
+        this.timeIndex = timeIndex;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+        try {
+            try (Transaction tx = database.beginTx()) {
+                indexName = uuidIndex.startRebuild(database).getName();
+                tx.success();
+            }
+
+            LOG.info("Rebuilding UUID index into {}", indexName);
+
+            final NodeInclusionPolicy inclusionPolicy = configuration.getInclusionPolicies().getNodeInclusionPolicy();
+            new ParallelNodeScan(database, Runtime.getRuntime().availableProcessors(), PARTITION_SIZE, true).scan(new ParallelNodeScan.NodeVisitor() {
+                @Override
+                public void visit(Node node) {
+                    if (!inclusionPolicy.include(node)) {
+                        return;
+                    }
+
+                    Object uuid = node.getProperty(configuration.getUuidProperty(), null);
+                    if (uuid != null) {
+                        index(uuidIndex.rebuildTarget(database), node, uuid);
+                        indexedNodes.incrementAndGet();
+                    }
+                }
+            }, new ParallelNodeScan.PartitionListener() {
+                @Override
+                public void started(long from, long to) {
+                    synchronized (UuidIndexRebuild.this) {
+                        scanning.put(from / PARTITION_SIZE, new ArrayList<UuidChange>());
+                    }
+                }
+
+                @Override
+                public void finished(long from, long to) {
+                    synchronized (UuidIndexRebuild.this) {
+                        long partition = from / PARTITION_SIZE;
+                        scanned.add(partition);
+                        buffer.addAll(scanning.remove(partition));
+                    }
+                    replay();
+                }
+            });
+
+            replay();
+
+            try (Transaction tx = database.beginTx()) {
+                uuidIndex.completeRebuild(database);
+                tx.success();
+            }
+
+            replay();
+        } catch (RuntimeException e) {
+            failed = true;
+            LOG.error("Failed to rebuild UUID index " + indexName + ", keeping the current one", e);
+            abort();
+        } finally {
+            finished = true;
+        }
+
+        if (!failed) {
+            LOG.info("Finished rebuilding UUID index into {}: {} nodes indexed, {} duplicate UUIDs skipped, {} concurrent changes replayed",
+                    indexName, indexedNodes.get(), duplicateUuids.get(), replayedChanges.get());
+        }
+    }
+
+    /**
+     * Buffer changes made by a committed transaction, so that they can be replayed onto the new index once the scan
+     * can't overwrite them anymore.
+     *
+     * @param changes to buffer.
+     */
+    void committed(List<UuidChange> changes) {
+        if (finished) {
+            return;
+        }
+
+        synchronized (this) {
+            for (UuidChange change : changes) {
+                long partition = change.getNodeId() / PARTITION_SIZE;
+                if (scanned.contains(partition)) {
+                    buffer.add(change);
+                    continue;
+                }
+
+                List<UuidChange> held = scanning.get(partition);
+                if (held != null) {
+                    held.add(change);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replay buffered changes onto the new index, in batches.
+     */
+    private void replay() {
+        while (!buffer.isEmpty()) {
+            try (Transaction tx = database.beginTx()) {
+                Index<Node> target = database.index().forNodes(indexName);
+                UuidChange change;
+                for (int i = 0; i < REPLAY_BATCH_SIZE && (change = buffer.poll()) != null; i++) {
+                    replay(target, change);
+                    replayedChanges.incrementAndGet();
+                }
+                tx.success();
+            }
+        }
+    }
+
+    private void replay(Index<Node> target, UuidChange change) {
+        if (UuidChange.Type.ASSIGNED.equals(change.getType())) {
+            Node node;
+            try {
+                node = database.getNodeById(change.getNodeId());
+            } catch (NotFoundException e) {
+                return;
+            }
+
+            if (change.getUuid().equals(node.getProperty(configuration.getUuidProperty(), null))) {
+                index(target, node, change.getUuid());
+            }
+            return;
+        }
+
+        //The scan read-locks nodes until its partition commits, so a node deleted concurrently is either skipped by
+        //the scan, or its deletion waits for the partition and removes the scan's entry itself. Only UUIDs replaced
+        //(e.g. by a repair) need removing here.
+        IndexHits<Node> hits = target.get(configuration.getUuidProperty(), change.getUuid());
+        try {
+            for (Node node : hits) {
+                if (node.getId() == change.getNodeId() && !change.getUuid().equals(node.getProperty(configuration.getUuidProperty(), null))) {
+                    target.remove(node, configuration.getUuidProperty(), change.getUuid());
+                    ValueContext time = timeIndex != null ? timeIndex.value(change.getUuid()) : null;
+                    if (time != null) {
+                        target.remove(node, timeIndex.getKey(), time);
+                    }
+                }
+            }
+        } finally {
+            hits.close();
+        }
+    }
+
+    private void index(Index<Node> target, Node node, Object uuid) {
+        Node existing = target.putIfAbsent(node, configuration.getUuidProperty(), uuid);
+        if (existing != null && existing.getId() != node.getId()) {
+            duplicateUuids.incrementAndGet();
+            LOG.warn("Node {} has the same UUID ({}) as node {}, not indexing it. Audit and repair UUIDs.", node.getId(), uuid, existing.getId());
+            return;
+        }
+
+        ValueContext time = timeIndex != null ? timeIndex.value(uuid) : null;
+        if (time != null) {
+            target.add(node, timeIndex.getKey(), time);
+        }
+    }
+
+    private void abort() {
+        try (Transaction tx = database.beginTx()) {
+            uuidIndex.abortRebuild(database);
+            tx.success();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not delete partially rebuilt UUID index " + indexName, e);
+        }
+    }
+
+    public long getIndexedNodes() {
+        return indexedNodes.get();
+    }
+
+    public long getDuplicateUuids() {
+        return duplicateUuids.get();
+    }
+
+    public long getReplayedChanges() {
+        return replayedChanges.get();
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+}
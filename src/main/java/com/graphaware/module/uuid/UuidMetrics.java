@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the overhead {@link UuidModule} adds to transaction commits. Recording is lock-free, so it can be done on
+ * every commit.
+ */
+public class UuidMetrics implements UuidMetricsMBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UuidMetrics.class);
+
+    private final AtomicLong rollbacks = new AtomicLong();
+    private final AtomicLong assignedNodes = new AtomicLong();
+    private final AtomicLong validatedNodes = new AtomicLong();
+
+    private final ConcurrentHistogram beforeCommitNanos = new ConcurrentHistogram();
+    private final ConcurrentHistogram assignedNodesPerTransaction = new ConcurrentHistogram();
+    private final ConcurrentHistogram validatedNodesPerTransaction = new ConcurrentHistogram();
+
+    private ObjectName objectName;
+
+    /**
+     * Record a processed transaction.
+     *
+     * @param durationNanos  time spent in {@link UuidModule#beforeCommit(com.graphaware.tx.event.improved.api.ImprovedTransactionData)}.
+     * @param assignedNodes  number of created nodes that have been assigned a UUID.
+     * @param validatedNodes number of changed nodes whose UUID has been validated.
+     */
+    void transactionProcessed(long durationNanos, int assignedNodes, int validatedNodes) {
+        beforeCommitNanos.record(durationNanos);
+        assignedNodesPerTransaction.record(assignedNodes);
+        validatedNodesPerTransaction.record(validatedNodes);
+        this.assignedNodes.addAndGet(assignedNodes);
+        this.validatedNodes.addAndGet(validatedNodes);
+    }
+
+    /**
+     * Record a transaction rolled back because of a UUID violation.
+     */
+    void transactionRolledBack() {
+        rollbacks.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTransactions() {
+        return beforeCommitNanos.getCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRollbacks() {
+        return rollbacks.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getAssignedNodes() {
+        return assignedNodes.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getValidatedNodes() {
+        return validatedNodes.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getBeforeCommitMeanMicros() {
+        return beforeCommitNanos.getMean() / 1000;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getBeforeCommitP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(beforeCommitNanos.getValueAtPercentile(50));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getBeforeCommitP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(beforeCommitNanos.getValueAtPercentile(99));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getBeforeCommitP999Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(beforeCommitNanos.getValueAtPercentile(99.9));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getBeforeCommitMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(beforeCommitNanos.getMax());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getAssignedNodesPerTransactionP99() {
+        return assignedNodesPerTransaction.getValueAtPercentile(99);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getValidatedNodesPerTransactionP99() {
+        return validatedNodesPerTransaction.getValueAtPercentile(99);
+    }
+
+    /**
+     * Take a snapshot of all metrics.
+     *
+     * @return metric name to value map.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("transactions", getTransactions());
+        snapshot.put("rollbacks", getRollbacks());
+        snapshot.put("assignedNodes", getAssignedNodes());
+        snapshot.put("validatedNodes", getValidatedNodes());
+        snapshot.put("beforeCommitMeanMicros", getBeforeCommitMeanMicros());
+        snapshot.put("beforeCommitP50Micros", getBeforeCommitP50Micros());
+        snapshot.put("beforeCommitP99Micros", getBeforeCommitP99Micros());
+        snapshot.put("beforeCommitP999Micros", getBeforeCommitP999Micros());
+        snapshot.put("beforeCommitMaxMicros", getBeforeCommitMaxMicros());
+        snapshot.put("assignedNodesPerTransactionP99", getAssignedNodesPerTransactionP99());
+        snapshot.put("validatedNodesPerTransactionP99", getValidatedNodesPerTransactionP99());
+        return snapshot;
+    }
+
+    /**
+     * Register with the platform MBean server, replacing metrics of a previous module with the same ID, if any.
+     *
+     * @param moduleId ID of the module the metrics belong to.
+     */
+    void register(String moduleId) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName("com.graphaware.module.uuid:type=UuidMetrics,module=" + ObjectName.quote(moduleId));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+        } catch (Exception e) {
+            LOG.warn("Could not register UUID metrics with JMX", e);
+            objectName = null;
+        }
+    }
+
+    /**
+     * Unregister from the platform MBean server, if registered.
+     */
+    void unregister() {
+        if (objectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            LOG.warn("Could not unregister UUID metrics from JMX", e);
+        }
+        objectName = null;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+/**
+ * JMX view of {@link UuidMetrics}. Durations are in microseconds.
+ */
+public interface UuidMetricsMBean {
+
+    long getTransactions();
+
+    long getRollbacks();
+
+    long getAssignedNodes();
+
+    long getValidatedNodes();
+
+    double getBeforeCommitMeanMicros();
+
+    long getBeforeCommitP50Micros();
+
+    long getBeforeCommitP99Micros();
+
+    long getBeforeCommitP999Micros();
+
+    long getBeforeCommitMaxMicros();
+
+    long getAssignedNodesPerTransactionP99();
+
+    long getValidatedNodesPerTransactionP99();
+}
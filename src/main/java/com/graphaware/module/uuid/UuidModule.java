@@ -26,19 +26,54 @@ import com.graphaware.tx.executor.single.TransactionCallback;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.index.IndexHits;
+import org.neo4j.kernel.GraphDatabaseAPI;
 import org.neo4j.tooling.GlobalGraphOperations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * {@link com.graphaware.runtime.module.TxDrivenModule} that assigns UUID's to nodes in the graph.
  */
-public class UuidModule extends BaseTxDrivenModule<Void> {
+public class UuidModule extends BaseTxDrivenModule<UuidTransactionState> {
 
-    private final static int BATCH_SIZE = 1000;
+    private static final Logger LOG = LoggerFactory.getLogger(UuidModule.class);
 
-    private final UuidGenerator uuidGenerator;
+    private final static int INITIALIZE_BATCH_SIZE = 10_000;
+    private final static int MAX_SORTED_PREFIX_MATCHES = 10_000;
+
+    private final UuidGenerator<?> uuidGenerator;
     private final UuidConfiguration uuidConfiguration;
+    private final UuidFormat uuidFormat;
+    private final NodeUuidResolver nodeUuidResolver;
+    private final UuidNodeIdCache nodeIdCache;
+    private final UuidIndex uuidIndex;
+    private final UuidUpserter upserter;
+    private final UuidTombstones tombstones;
+    private final UuidTimeIndex timeIndex;
+    private final UuidSchemaIndexes schemaIndexes;
+    private final UuidMetrics metrics = new UuidMetrics();
+    private final UuidHotKeys hotKeys;
+    private final long slowTransactionThresholdNanos;
+
+    private final AtomicReference<UuidRepair> runningRepair = new AtomicReference<>();
+    private final ThreadLocal<UuidRepair> repairOnCurrentThread = new ThreadLocal<>();
+    private final AtomicReference<UuidIndexRebuild> runningIndexRebuild = new AtomicReference<>();
+
+    private volatile UuidChangeLog changeLog;
 
     /**
      * Construct a new UUID module.
@@ -47,8 +82,20 @@ public class UuidModule extends BaseTxDrivenModule<Void> {
      */
     public UuidModule(String moduleId, UuidConfiguration configuration) {
         super(moduleId);
-        this.uuidGenerator = new EaioUuidGenerator();
+        this.uuidGenerator = configuration.getGeneratorType().createGenerator(configuration);
         this.uuidConfiguration = configuration;
+        this.uuidFormat = UuidFormat.of(configuration);
+        this.nodeUuidResolver = new NodeUuidResolver(configuration);
+        this.nodeIdCache = configuration.getNodeIdCacheSize() > 0 ? new UuidNodeIdCache(configuration.getNodeIdCacheSize()) : null;
+        this.hotKeys = configuration.getHotKeySampleRate() > 0 ? new UuidHotKeys(configuration.getHotKeySampleRate()) : null;
+        this.uuidIndex = new UuidIndex(configuration);
+        this.upserter = new UuidUpserter(this, configuration, uuidIndex);
+        this.schemaIndexes = configuration.getSchemaIndexLabels().isEmpty() ? null : new UuidSchemaIndexes(configuration);
+        this.timeIndex = configuration.isTimeRangeIndex() ? new UuidTimeIndex(configuration, uuidIndex) : null;
+        this.tombstones = configuration.getTombstoneRetentionSeconds() > 0
+                ? new UuidTombstones(configuration, TimeUnit.SECONDS.toMillis(configuration.getTombstoneRetentionSeconds()))
+                : null;
+        this.slowTransactionThresholdNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getSlowTransactionThresholdMillis());
     }
 
     /**
@@ -59,14 +106,37 @@ public class UuidModule extends BaseTxDrivenModule<Void> {
         return uuidConfiguration;
     }
 
+    /**
+     * Get the resolver of node IDs to UUIDs assigned by this module.
+     *
+     * @return resolver.
+     */
+    public NodeUuidResolver getNodeUuidResolver() {
+        return nodeUuidResolver;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void initialize(GraphDatabaseService database) {
+        if (schemaIndexes != null) {
+            schemaIndexes.create(database);
+        }
+
+        String storeDir = ((GraphDatabaseAPI) database).getStoreDir();
+        if (UuidBatchInserter.isImported(storeDir, uuidConfiguration.getUuidProperty())) {
+            LOG.info("Database has been imported with UUIDs assigned and indexed, skipping initialization");
+            //only the first initialization can rely on the import; later ones (e.g. after a configuration change) can't
+            if (!new File(storeDir, UuidBatchInserter.MARKER_FILE).delete()) {
+                LOG.warn("Could not delete UUID import marker in {}", storeDir);
+            }
+            return;
+        }
+
         new IterableInputBatchTransactionExecutor<>(
                 database,
-                BATCH_SIZE,
+                INITIALIZE_BATCH_SIZE,
                 new TransactionCallback<Iterable<Node>>() {
                     @Override
                     public Iterable<Node> doInTransaction(GraphDatabaseService database) throws Exception {
@@ -76,43 +146,812 @@ public class UuidModule extends BaseTxDrivenModule<Void> {
                 new UnitOfWork<Node>() {
                     @Override
                     public void execute(GraphDatabaseService database, Node node, int batchNumber, int stepNumber) {
-                        if (getConfiguration().getInclusionPolicies().getNodeInclusionPolicy().include(node)) {
+                        if (!getConfiguration().getInclusionPolicies().getNodeInclusionPolicy().include(node)) {
+                            return;
+                        }
+
+                        Object uuid = node.getProperty(uuidConfiguration.getUuidProperty(), null);
+                        if (uuid == null) {
                             assignUuid(node);
+                        } else {
+                            indexExistingUuid(database, node, uuid);
                         }
                     }
                 }
         ).execute();
     }
 
+    /**
+     * Index a node that already has a UUID, assigned before the indexes have been maintained (or enabled).
+     *
+     * @param database the node is in.
+     * @param node     to index.
+     * @param uuid     of the node.
+     */
+    private void indexExistingUuid(GraphDatabaseService database, Node node, Object uuid) {
+        Node indexed = uuidIndex.get(database, uuid);
+        if (indexed == null) {
+            uuidIndex.add(node, uuid);
+        } else if (indexed.getId() != node.getId()) {
+            LOG.warn("Node {} has the same UUID ({}) as node {}, not indexing it. Audit and repair UUIDs.", node.getId(), uuid, indexed.getId());
+            return;
+        }
+
+        //also for nodes indexed already, in case the time index has just been enabled
+        if (timeIndex != null) {
+            timeIndex.add(node, uuid);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void start(GraphDatabaseService database) {
+        try (Transaction tx = database.beginTx()) {
+            int deleted = uuidIndex.deleteRetired(database);
+            if (deleted > 0) {
+                LOG.info("Deleted {} UUID indexes replaced by a rebuild", deleted);
+            }
+            tx.success();
+        }
+
+        metrics.register(getId());
+        if (hotKeys != null) {
+            hotKeys.register(getId());
+        }
+
+        if (uuidConfiguration.getChangeLogDirectory() != null) {
+            try {
+                changeLog = new UuidChangeLog(new File(uuidConfiguration.getChangeLogDirectory()), uuidConfiguration.getGeneratorType().isNumeric(), uuidConfiguration.getChangeLogRetainedSegments());
+                LOG.info("UUID change log opened at sequence {}", changeLog.getLastSequence());
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not open UUID change log in " + uuidConfiguration.getChangeLogDirectory(), e);
+            }
+
+            if (tombstones != null) {
+                restoreTombstones();
+            }
+        }
+
+        if (nodeIdCache != null && uuidConfiguration.getWarmUpFile() != null) {
+            warmUp(database, new File(uuidConfiguration.getWarmUpFile()));
+        }
+
+        if (uuidConfiguration.isAuditOnStartup()) {
+            startAudit(database);
+        }
+    }
+
+    /**
+     * Warm the UUID to node ID cache up from the snapshot saved at the last shutdown, if there is one. Blocks until
+     * finished, so that the module doesn't start serving lookups with a cold cache.
+     */
+    private void warmUp(GraphDatabaseService database, File file) {
+        if (!file.exists()) {
+            LOG.info("No UUID cache snapshot at {}, not warming up", file.getAbsolutePath());
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            int loaded = new UuidCacheWarmUp(this, uuidConfiguration, nodeIdCache).load(database, file, uuidConfiguration.isWarmUpIndexPages());
+            LOG.info("Warmed up UUID cache with {} entries in {} ms", loaded, System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            LOG.warn("Could not warm up UUID cache from " + file.getAbsolutePath(), e);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
-    public Void beforeCommit(ImprovedTransactionData transactionData) throws DeliberateTransactionRollbackException {
+    public void shutdown() {
+        metrics.unregister();
+        if (hotKeys != null) {
+            hotKeys.unregister();
+        }
+
+        if (nodeIdCache != null && uuidConfiguration.getWarmUpFile() != null) {
+            File file = new File(uuidConfiguration.getWarmUpFile());
+            try {
+                int saved = new UuidCacheWarmUp(this, uuidConfiguration, nodeIdCache).save(file);
+                LOG.info("Saved {} UUID cache entries to {}", saved, file.getAbsolutePath());
+            } catch (IOException e) {
+                LOG.warn("Could not save UUID cache to " + file.getAbsolutePath(), e);
+            }
+        }
+
+        if (changeLog != null) {
+            try {
+                changeLog.close();
+            } catch (IOException e) {
+                LOG.warn("Could not close UUID change log", e);
+            }
+        }
+    }
+
+    /**
+     * Get metrics of the overhead this module adds to transaction commits.
+     *
+     * @return metrics.
+     */
+    public UuidMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get statistics of the most looked up UUIDs.
+     *
+     * @return statistics.
+     * @throws IllegalStateException if hot key tracking isn't enabled.
+     */
+    public UuidHotKeys getHotKeys() {
+        if (hotKeys == null) {
+            throw new IllegalStateException("Hot key tracking is not enabled, configure a hot key sample rate");
+        }
+        return hotKeys;
+    }
+
+    /**
+     * Rebuild tombstones of UUIDs deleted within the retention period from the change log, reading only segments written
+     * to within the period.
+     */
+    private void restoreTombstones() {
+        long from = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(uuidConfiguration.getTombstoneRetentionSeconds());
+
+        try (UuidChangeLog.Reader reader = changeLog.readFrom(from)) {
+            UuidChange change;
+            while ((change = reader.next()) != null) {
+                tombstones.record(change, change.getTimestamp());
+            }
+            LOG.info("Restored {} UUID tombstones from the change log", tombstones.size());
+        } catch (IOException e) {
+            LOG.warn("Could not restore UUID tombstones from the change log", e);
+        }
+    }
+
+    /**
+     * Find the ID of the node with a UUID, with {@link UuidConsistency#STRONG} consistency.
+     *
+     * @param database to search.
+     * @param uuid     of the node, in the canonical form or the configured encoding.
+     * @return ID of the node.
+     * @throws NotFoundException    if there is no node with the UUID.
+     * @throws UuidDeletedException if the node with the UUID has been deleted within the tombstone retention period.
+     */
+    public long getNodeId(GraphDatabaseService database, String uuid) {
+        return getNodeId(database, uuid, UuidConsistency.STRONG);
+    }
+
+    /**
+     * Find the ID of the node with a UUID.
+     *
+     * @param database    to search.
+     * @param uuid        of the node, in the canonical form or the configured encoding.
+     * @param consistency of the lookup.
+     * @return ID of the node.
+     * @throws NotFoundException    if there is no node with the UUID.
+     * @throws UuidDeletedException if the node with the UUID has been deleted within the tombstone retention period.
+     */
+    public long getNodeId(GraphDatabaseService database, String uuid, UuidConsistency consistency) {
+        Object normalized = uuidFormat.normalize(uuid);
+
+        if (uuidFormat.isValid(normalized)) {
+            Long nodeId = getNodeIds(database, consistency, uuid).get(uuid);
+            if (nodeId != null) {
+                return nodeId;
+            }
+
+            if (tombstones != null && tombstones.contains(normalized)) {
+                throw new UuidDeletedException(uuid);
+            }
+        }
+
+        throw new NotFoundException("There is no node with UUID " + uuid);
+    }
+
+    /**
+     * Find the IDs of nodes with UUIDs, in a single transaction, with {@link UuidConsistency#STRONG} consistency.
+     *
+     * @param database to search.
+     * @param uuids    of the nodes, in the canonical form or the configured encoding.
+     * @return node IDs keyed by the given UUIDs. UUIDs of nodes that don't exist are absent.
+     */
+    public Map<String, Long> getNodeIds(GraphDatabaseService database, String... uuids) {
+        return getNodeIds(database, UuidConsistency.STRONG, uuids);
+    }
+
+    /**
+     * Find the IDs of nodes with UUIDs. UUIDs not found in the cache are looked up in the indexes in a single
+     * transaction, unless the consistency is {@link UuidConsistency#EVENTUAL}.
+     *
+     * @param database    to search.
+     * @param consistency of the lookup.
+     * @param uuids       of the nodes, in the canonical form or the configured encoding.
+     * @return node IDs keyed by the given UUIDs. UUIDs of nodes that don't exist (or aren't cached, with eventual
+     *         consistency) are absent.
+     */
+    public Map<String, Long> getNodeIds(GraphDatabaseService database, UuidConsistency consistency, String... uuids) {
+        return lookUpNodeIds(database, consistency, hotKeys, uuids);
+    }
+
+    /**
+     * Find the IDs of nodes with UUIDs, as {@link #getNodeIds(GraphDatabaseService, UuidConsistency, String...)}, but
+     * without recording the lookups in hot key statistics (e.g. when warming the cache up).
+     */
+    Map<String, Long> findNodeIds(GraphDatabaseService database, UuidConsistency consistency, String... uuids) {
+        return lookUpNodeIds(database, consistency, null, uuids);
+    }
+
+    private Map<String, Long> lookUpNodeIds(GraphDatabaseService database, UuidConsistency consistency, UuidHotKeys hotKeys, String... uuids) {
+        Map<String, Long> result = new HashMap<>();
+        Map<String, Object> misses = new HashMap<>();
+        long cacheVersion = nodeIdCache != null ? nodeIdCache.version() : 0;
+
+        for (String uuid : uuids) {
+            Object normalized = uuidFormat.normalize(uuid);
+            if (!uuidFormat.isValid(normalized)) {
+                continue;
+            }
+
+            if (hotKeys != null) {
+                hotKeys.lookedUp(normalized);
+            }
+
+            long nodeId = nodeIdCache != null ? nodeIdCache.get(normalized) : -1;
+            if (nodeId >= 0) {
+                result.put(uuid, nodeId);
+            } else if (UuidConsistency.STRONG.equals(consistency) || nodeIdCache == null) {
+                misses.put(uuid, normalized);
+            }
+        }
+
+        if (misses.isEmpty()) {
+            return result;
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            for (Map.Entry<String, Object> miss : misses.entrySet()) {
+                Node node = schemaIndexes != null ? schemaIndexes.find(database, miss.getValue()) : null;
+                if (node == null) {
+                    node = uuidIndex.get(database, miss.getValue());
+                }
+                if (node != null) {
+                    result.put(miss.getKey(), node.getId());
+                    if (nodeIdCache != null) {
+                        nodeIdCache.put(miss.getValue(), node.getId(), cacheVersion);
+                    }
+                }
+            }
+            tx.success();
+        }
+
+        return result;
+    }
+
+    /**
+     * Find nodes whose UUIDs start with a prefix, e.g. a shortened UUID from a log.
+     * <p/>
+     * Up to {@value #MAX_SORTED_PREFIX_MATCHES} matches are sorted by UUID before being truncated to the limit, so the
+     * lowest matching UUIDs are returned. If more nodes match, those returned are the lowest of the first
+     * {@value #MAX_SORTED_PREFIX_MATCHES} found (in index order), not necessarily of all.
+     *
+     * @param database to search.
+     * @param prefix   of the UUID in the configured encoding (case-insensitive for {@link UuidEncoding#HEX}).
+     * @param limit    maximum number of nodes to return.
+     * @return matching nodes, ordered by UUID.
+     * @throws IllegalArgumentException if the prefix is empty or the limit is less than 1.
+     */
+    public UuidPrefixMatches findByPrefix(GraphDatabaseService database, String prefix, int limit) {
+        if (prefix == null || prefix.isEmpty()) {
+            throw new IllegalArgumentException("UUID prefix must not be empty");
+        }
+
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1, was " + limit);
+        }
+
+        String normalized = uuidConfiguration.getEncoding() == UuidEncoding.HEX && !uuidConfiguration.getGeneratorType().isNumeric()
+                ? prefix.toLowerCase()
+                : prefix;
+
+        UuidPrefixMatches result = new UuidPrefixMatches(normalized);
+        List<UuidPrefixMatches.Match> matches = new ArrayList<>();
+
+        try (Transaction tx = database.beginTx()) {
+            IndexHits<Node> hits = uuidIndex.findByPrefix(database, normalized);
+            try {
+                for (Node node : hits) {
+                    if (matches.size() >= MAX_SORTED_PREFIX_MATCHES) {
+                        result.setTruncated(true);
+                        break;
+                    }
+                    matches.add(new UuidPrefixMatches.Match(node.getId(), node.getProperty(uuidConfiguration.getUuidProperty(), null)));
+                }
+            } finally {
+                hits.close();
+            }
+            tx.success();
+        }
+
+        Collections.sort(matches, new Comparator<UuidPrefixMatches.Match>() {
+            @Override
+            public int compare(UuidPrefixMatches.Match o1, UuidPrefixMatches.Match o2) {
+                return String.valueOf(o1.getUuid()).compareTo(String.valueOf(o2.getUuid()));
+            }
+        });
+
+        if (matches.size() > limit) {
+            result.setTruncated(true);
+        }
+
+        for (UuidPrefixMatches.Match match : matches.subList(0, Math.min(limit, matches.size()))) {
+            result.add(match);
+        }
+
+        return result;
+    }
+
+    /**
+     * Find nodes whose UUIDs have been generated in a time range, ordered by generation time, one page at a time.
+     *
+     * @param database   to search.
+     * @param fromMillis start of the range (inclusive), in ms since epoch.
+     * @param toMillis   end of the range (exclusive), in ms since epoch.
+     * @param cursor     returned with the previous page, null for the first page.
+     * @param limit      maximum number of nodes to return.
+     * @return page of nodes.
+     * @throws IllegalStateException    if the time range index isn't enabled.
+     * @throws IllegalArgumentException if the cursor is malformed or the limit is less than 1.
+     */
+    public UuidTimeRangePage findByTimeRange(GraphDatabaseService database, long fromMillis, long toMillis, String cursor, int limit) {
+        if (timeIndex == null) {
+            throw new IllegalStateException("UUID time range index is not enabled");
+        }
+
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1, was " + limit);
+        }
+
+        return timeIndex.find(database, fromMillis, toMillis, cursor, limit);
+    }
+
+    /**
+     * Read UUIDs assigned and deleted since a point in the change log, waiting for new ones if there are none yet.
+     *
+     * @param since         sequence number of the last change already seen, 0 to read from the beginning.
+     * @param limit         maximum number of changes to return.
+     * @param timeoutMillis maximum time to wait for new changes, 0 for not waiting.
+     * @return changes, in order. Empty if there were none within the timeout.
+     * @throws IllegalStateException if the change log isn't enabled.
+     * @throws IOException           if the change log can't be read.
+     */
+    public List<UuidChange> getChanges(long since, int limit, long timeoutMillis) throws IOException {
+        UuidChangeLog changeLog = this.changeLog;
+        if (changeLog == null) {
+            throw new IllegalStateException("UUID change log is not enabled");
+        }
 
-        //Set the UUID on all created nodes
-        for (Node node : transactionData.getAllCreatedNodes()) {
+        return changeLog.poll(since, limit, timeoutMillis);
+    }
+
+    /**
+     * Audit UUIDs assigned by this module. Blocks until finished, which, for large graphs, can take a while.
+     *
+     * @param database to audit.
+     * @return audit report.
+     */
+    public UuidAuditReport audit(GraphDatabaseService database) {
+        return new UuidAuditor(database, uuidConfiguration).audit();
+    }
+
+    private void startAudit(final GraphDatabaseService database) {
+        Thread audit = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                LOG.info("Auditing UUIDs...");
+                UuidAuditReport report = audit(database);
+                if (report.isClean()) {
+                    LOG.info("UUID audit finished, no problems found: {}", report);
+                } else {
+                    LOG.warn("UUID audit finished, problems found: {}. Nodes with missing UUID: {}, nodes with malformed UUID: {}, nodes sharing a UUID: {}",
+                            report, report.getNodesWithMissingUuid(), report.getNodesWithMalformedUuid(), report.getNodesWithDuplicateUuid());
+                }
+            }
+        }, "UuidAudit-" + getId());
+
+        audit.setDaemon(true);
+        audit.start();
+    }
+
+    /**
+     * Normalize a UUID received on input (e.g. via {@link UuidApi}), which can be in the canonical form or in the
+     * configured encoding, to the form in which this module stores UUIDs.
+     *
+     * @param uuid to normalize.
+     * @return normalized UUID, a {@link Long} for numeric UUIDs.
+     */
+    Object normalizeUuid(String uuid) {
+        return uuidFormat.normalize(uuid);
+    }
+
+    /**
+     * Check whether a (normalized) UUID is well-formed, i.e. could have been assigned by this module.
+     *
+     * @param uuid to check.
+     * @return true iff valid.
+     */
+    boolean isValidUuid(Object uuid) {
+        return uuidFormat.isValid(uuid);
+    }
+
+    /**
+     * Create or update nodes identified by UUIDs, in batches, each in a single transaction. Nodes are found by UUID
+     * through the UUID index, nodes with UUIDs not found are created with the given UUID.
+     *
+     * @param database  to upsert nodes in.
+     * @param records   describing the nodes.
+     * @param batchSize number of records upserted in a single transaction.
+     * @return result of the upsert.
+     * @throws IllegalArgumentException if a record has no or an invalid UUID, or would create a node excluded by the
+     *                                  inclusion policy.
+     */
+    public UuidUpsertResult upsert(GraphDatabaseService database, List<UuidUpsertRecord> records, int batchSize) {
+        return upserter.upsert(database, records, batchSize);
+    }
+
+    /**
+     * Start repairing UUIDs in the background, i.e. assigning fresh UUIDs to included nodes with a missing or malformed
+     * one. Only one repair can run at a time.
+     *
+     * @param database    to repair.
+     * @param batchSize   number of nodes to process in a single transaction.
+     * @param pauseMillis number of milliseconds to pause between batches.
+     * @param mappingFile file to log old to new UUID mappings to.
+     * @return the started repair, which can be used to track its progress.
+     * @throws IllegalStateException if a repair is already running.
+     */
+    public UuidRepair startRepair(GraphDatabaseService database, int batchSize, long pauseMillis, File mappingFile) {
+        UuidRepair repair = new UuidRepair(database, this, batchSize, pauseMillis, mappingFile);
+
+        UuidRepair previous = runningRepair.get();
+        if ((previous != null && !previous.isFinished()) || !runningRepair.compareAndSet(previous, repair)) {
+            throw new IllegalStateException("A UUID repair is already running");
+        }
+
+        Thread thread = new Thread(repair, "UuidRepair-" + getId());
+        thread.setDaemon(true);
+        thread.start();
+
+        return repair;
+    }
+
+    /**
+     * Get the most recently started repair.
+     *
+     * @return repair, null if none has been started.
+     */
+    public UuidRepair getRepair() {
+        return runningRepair.get();
+    }
+
+    /**
+     * Start rebuilding the UUID index in the background, e.g. after it got out of sync with the data. Lookups are
+     * served by the current index until the new one is complete. Only one rebuild can run at a time.
+     *
+     * @param database whose index to rebuild.
+     * @return the started rebuild, which can be used to track its progress.
+     * @throws IllegalStateException if a rebuild is already running.
+     */
+    public UuidIndexRebuild startIndexRebuild(GraphDatabaseService database) {
+        UuidIndexRebuild rebuild = new UuidIndexRebuild(database, uuidConfiguration, uuidIndex, timeIndex);
+
+        UuidIndexRebuild previous = runningIndexRebuild.get();
+        if ((previous != null && !previous.isFinished()) || !runningIndexRebuild.compareAndSet(previous, rebuild)) {
+            throw new IllegalStateException("A UUID index rebuild is already running");
+        }
+
+        Thread thread = new Thread(rebuild, "UuidIndexRebuild-" + getId());
+        thread.setDaemon(true);
+        thread.start();
+
+        return rebuild;
+    }
+
+    /**
+     * Get the most recently started index rebuild.
+     *
+     * @return rebuild, null if none has been started.
+     */
+    public UuidIndexRebuild getIndexRebuild() {
+        return runningIndexRebuild.get();
+    }
+
+    /**
+     * Mark the current thread as running a repair, so that the UUID changes it commits are allowed.
+     *
+     * @param repair running on the current thread.
+     */
+    void startRepairing(UuidRepair repair) {
+        repairOnCurrentThread.set(repair);
+    }
+
+    /**
+     * Mark the current thread as no longer running a repair.
+     */
+    void stopRepairing() {
+        repairOnCurrentThread.remove();
+    }
+
+    /**
+     * Assign a fresh UUID to a node, if it is included and has a missing or malformed UUID.
+     *
+     * @param node to repair.
+     */
+    void repairUuid(Node node) {
+        if (!uuidConfiguration.getInclusionPolicies().getNodeInclusionPolicy().include(node)) {
+            return;
+        }
+
+        Object uuid = node.getProperty(uuidConfiguration.getUuidProperty(), null);
+        if (uuid == null) {
+            assignUuid(node);
+        } else if (!uuidFormat.isValid(uuid)) {
+            uuidIndex.remove(node, uuid);
+            node.removeProperty(uuidConfiguration.getUuidProperty());
             assignUuid(node);
         }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public UuidTransactionState beforeCommit(ImprovedTransactionData transactionData) throws DeliberateTransactionRollbackException {
+        long start = System.nanoTime();
+        int assignedNodes = 0;
+        int validatedNodes = 0;
+
+        UuidTransactionState state = new UuidTransactionState(repairOnCurrentThread.get(), nodeIdCache != null ? nodeIdCache.version() : 0);
+        UuidCommitTimings timings = slowTransactionThresholdNanos > 0 ? new UuidCommitTimings() : null;
+
+        try {
+            //Set the UUID on all created nodes, make sure the ones created with a UUID already have a unique one
+            for (Node node : transactionData.getAllCreatedNodes()) {
+                if (node.hasProperty(uuidConfiguration.getUuidProperty())) {
+                    ensureUnique(node);
+                    if (timeIndex != null) {
+                        timeIndex.add(node, node.getProperty(uuidConfiguration.getUuidProperty()));
+                    }
+                } else if (assignUuid(node, timings)) {
+                    assignedNodes++;
+                }
 
-        //Check if the UUID has been modified or removed from the node and throw an error
+                state.getChanges().add(new UuidChange(UuidChange.Type.ASSIGNED, node.getId(), node.getProperty(uuidConfiguration.getUuidProperty())));
+            }
+
+            if (state.getRepair() != null) {
+                //Changes made by a repair are allowed, just remember them so they can be logged
+                collectReassignments(transactionData, state);
+            } else if (!UuidProtectionMode.ASSIGN_ONLY.equals(uuidConfiguration.getProtectionMode())) {
+                long validationStart = timings != null ? System.nanoTime() : 0;
+                boolean denyModification = UuidProtectionMode.STRICT.equals(uuidConfiguration.getProtectionMode());
+
+                //Check if the UUID has been modified or removed from the node and throw an error
+                for (Change<Node> change : transactionData.getAllChangedNodes()) {
+                    validatedNodes++;
+
+                    if (!change.getCurrent().hasProperty(uuidConfiguration.getUuidProperty())) {
+                        throw new DeliberateTransactionRollbackException("You are not allowed to remove the " + uuidConfiguration.getUuidProperty() + " property");
+                    }
+
+                    Object previous = change.getPrevious().getProperty(uuidConfiguration.getUuidProperty(), null);
+                    Object current = change.getCurrent().getProperty(uuidConfiguration.getUuidProperty());
+                    if (!current.equals(previous)) {
+                        if (denyModification) {
+                            throw new DeliberateTransactionRollbackException("You are not allowed to modify the " + uuidConfiguration.getUuidProperty() + " property");
+                        }
+                        reindexUuid(change.getCurrent(), previous, current, state);
+                    }
+                }
+
+                if (timings != null) {
+                    timings.validated(System.nanoTime() - validationStart);
+                }
+            }
+
+            for (Node node : transactionData.getAllDeletedNodes()) {
+                //by node rather than by UUID, which may have been changed unchecked (see UuidProtectionMode.ASSIGN_ONLY)
+                uuidIndex.removeAll(node);
+
+                Object uuid = node.getProperty(uuidConfiguration.getUuidProperty(), null);
+                if (uuid != null) {
+                    state.getChanges().add(new UuidChange(UuidChange.Type.DELETED, node.getId(), uuid));
+                }
+            }
+        } catch (DeliberateTransactionRollbackException e) {
+            metrics.transactionRolledBack();
+            throw e;
+        } finally {
+            long duration = System.nanoTime() - start;
+            metrics.transactionProcessed(duration, assignedNodes, validatedNodes);
+
+            if (timings != null && duration > slowTransactionThresholdNanos) {
+                LOG.warn("Slow UUID transaction: {}", timings.toRecord(duration,
+                        transactionData.getAllCreatedNodes().size(),
+                        transactionData.getAllChangedNodes().size(),
+                        transactionData.getAllDeletedNodes().size()));
+            }
+        }
+
+        return state;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterCommit(UuidTransactionState state) {
+        if (state.getRepair() != null && !state.getReassignments().isEmpty()) {
+            state.getRepair().committed(state.getReassignments());
+        }
+
+        //only once committed, otherwise a concurrent reader could cache the old UUID again in the meantime
+        for (UuidChange change : state.getChanges()) {
+            if (UuidChange.Type.DELETED.equals(change.getType())) {
+                nodeUuidResolver.invalidate(change.getNodeId());
+            }
+        }
+
+        if (tombstones != null && !state.getChanges().isEmpty()) {
+            long now = System.currentTimeMillis();
+            for (UuidChange change : state.getChanges()) {
+                tombstones.record(change, now);
+            }
+        }
+
+        if (nodeIdCache != null) {
+            for (UuidChange change : state.getChanges()) {
+                if (UuidChange.Type.ASSIGNED.equals(change.getType())) {
+                    nodeIdCache.put(change.getUuid(), change.getNodeId(), state.getCacheVersion());
+                } else {
+                    nodeIdCache.invalidate(change.getUuid());
+                }
+            }
+        }
+
+        UuidIndexRebuild indexRebuild = runningIndexRebuild.get();
+        if (indexRebuild != null && !state.getChanges().isEmpty()) {
+            indexRebuild.committed(state.getChanges());
+        }
+
+        UuidChangeLog changeLog = this.changeLog;
+        if (changeLog != null && !state.getChanges().isEmpty()) {
+            try {
+                changeLog.append(state.getChanges());
+            } catch (IOException e) {
+                LOG.error("Could not append " + state.getChanges().size() + " changes to the UUID change log", e);
+            }
+        }
+    }
+
+    private void collectReassignments(ImprovedTransactionData transactionData, UuidTransactionState state) {
         for (Change<Node> change : transactionData.getAllChangedNodes()) {
-            if (!change.getCurrent().hasProperty(uuidConfiguration.getUuidProperty())) {
-                throw new DeliberateTransactionRollbackException("You are not allowed to remove the " + uuidConfiguration.getUuidProperty() + " property");
+            Object previous = change.getPrevious().getProperty(uuidConfiguration.getUuidProperty(), null);
+            Object current = change.getCurrent().getProperty(uuidConfiguration.getUuidProperty(), null);
+            if (current != null && !current.equals(previous)) {
+                state.getReassignments().add(new UuidReassignment(change.getCurrent().getId(), previous, current));
+
+                if (previous != null) {
+                    state.getChanges().add(new UuidChange(UuidChange.Type.DELETED, change.getCurrent().getId(), previous));
+                }
+                state.getChanges().add(new UuidChange(UuidChange.Type.ASSIGNED, change.getCurrent().getId(), current));
             }
+        }
+    }
+
+    /**
+     * Move a node whose UUID has been modified from its previous UUID to the current one in the indexes, making sure no
+     * other node has the current one.
+     *
+     * @param node     whose UUID has been modified.
+     * @param previous UUID of the node, null if it had none.
+     * @param current  UUID of the node.
+     * @param state    of the transaction, to record the changes in.
+     * @throws DeliberateTransactionRollbackException if the current UUID is already used by another node.
+     */
+    private void reindexUuid(Node node, Object previous, Object current, UuidTransactionState state) throws DeliberateTransactionRollbackException {
+        ensureUnique(node, current);
 
-            if (!change.getPrevious().getProperty(uuidConfiguration.getUuidProperty()).equals(change.getCurrent().getProperty(uuidConfiguration.getUuidProperty()))) {
-                throw new DeliberateTransactionRollbackException("You are not allowed to modify the " + uuidConfiguration.getUuidProperty() + " property");
+        if (previous != null) {
+            uuidIndex.remove(node, previous);
+            if (timeIndex != null) {
+                timeIndex.remove(node, previous);
             }
+            state.getChanges().add(new UuidChange(UuidChange.Type.DELETED, node.getId(), previous));
         }
 
-        return null;
+        if (timeIndex != null) {
+            timeIndex.add(node, current);
+        }
+        state.getChanges().add(new UuidChange(UuidChange.Type.ASSIGNED, node.getId(), current));
     }
 
+    /**
+     * Assign a UUID to a node, unless it already has one. Nodes that would get a UUID already in use by another node
+     * (possible only with deterministic UUIDs) are left without one.
+     *
+     * @param node to assign a UUID to.
+     */
     private void assignUuid(Node node) {
-        if (!node.hasProperty(uuidConfiguration.getUuidProperty())) {
-            String uuid = uuidGenerator.generateUuid();
-            node.setProperty(uuidConfiguration.getUuidProperty(), uuid);
+        try {
+            assignUuid(node, null);
+        } catch (DeliberateTransactionRollbackException e) {
+            LOG.warn("Node {} has not been assigned a UUID: {}", node.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Assign a UUID to a node, unless it already has one.
+     *
+     * @param node    to assign a UUID to.
+     * @param timings to record the time spent generating and writing the UUID to, null for no recording.
+     * @return true iff a UUID has been assigned.
+     * @throws DeliberateTransactionRollbackException if the generated UUID is deterministic and already used by another node.
+     */
+    private boolean assignUuid(Node node, UuidCommitTimings timings) throws DeliberateTransactionRollbackException {
+        if (node.hasProperty(uuidConfiguration.getUuidProperty())) {
+            return false;
+        }
+
+        long generationStart = timings != null ? System.nanoTime() : 0;
+        Object uuid;
+        if (uuidGenerator instanceof NodeUuidGenerator) {
+            uuid = ((NodeUuidGenerator<?>) uuidGenerator).generateUuid(node);
+        } else {
+            uuid = uuidGenerator.generateUuid();
+        }
+        long writeStart = timings != null ? System.nanoTime() : 0;
+
+        if (uuidGenerator instanceof NodeUuidGenerator) {
+            //the same keys always produce the same UUID, so it must be claimed like one the node was created with
+            ensureUnique(node, uuid);
+        } else {
+            uuidIndex.add(node, uuid);
+        }
+        if (timeIndex != null) {
+            timeIndex.add(node, uuid);
+        }
+        node.setProperty(uuidConfiguration.getUuidProperty(), uuid);
+
+        if (timings != null) {
+            timings.generated(writeStart - generationStart);
+            timings.propertyWritten(System.nanoTime() - writeStart);
+        }
+
+        return true;
+    }
+
+    /**
+     * Make sure no other node has the UUID a node has been created with. This is an index lookup (not a scan), which
+     * also locks the UUID until the transaction finishes, so concurrent transactions can't claim it in the meantime.
+     * <p/>
+     * Note that only nodes present in the UUID index (i.e. those created or assigned a UUID by this module) are
+     * considered.
+     *
+     * @param node created node with a UUID.
+     * @throws DeliberateTransactionRollbackException if the UUID is already used by another node.
+     */
+    private void ensureUnique(Node node) throws DeliberateTransactionRollbackException {
+        ensureUnique(node, node.getProperty(uuidConfiguration.getUuidProperty()));
+    }
+
+    private void ensureUnique(Node node, Object uuid) throws DeliberateTransactionRollbackException {
+        Node existing = uuidIndex.addIfAbsent(node, uuid);
+
+        if (existing != null && existing.getId() != node.getId()) {
+            throw new DeliberateTransactionRollbackException("The " + uuidConfiguration.getUuidProperty() + " property value " + uuid + " is already in use by another node");
         }
     }
 }
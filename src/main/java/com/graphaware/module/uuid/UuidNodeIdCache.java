@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, direct-mapped cache of UUID to node ID, the counterpart of {@link NodeUuidCache}. UUIDs are cached in their
+ * stored (normalized) form.
+ * <p/>
+ * Mappings are added after the transactions creating them have been committed, and when looked up from the indexes.
+ * Since both can race with the deletion of the node, every invalidation bumps a version, and a looked-up mapping
+ * is only kept if no invalidation happened since the lookup started (see {@link #put(Object, long, long)}).
+ */
+final class UuidNodeIdCache {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Create a new cache.
+     *
+     * @param capacity maximum number of entries, rounded up to the nearest power of two. Must be positive.
+     */
+    UuidNodeIdCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+
+        int size = capacity >= MAX_CAPACITY ? MAX_CAPACITY : Integer.highestOneBit(capacity - 1) << 1;
+        if (size == 0) {
+            size = 1;
+        }
+
+        this.entries = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Get the ID of the node with a UUID.
+     *
+     * @param uuid of the node.
+     * @return node ID, -1 if not cached.
+     */
+    long get(Object uuid) {
+        Entry entry = entries.get(slot(uuid));
+        if (entry != null && entry.uuid.equals(uuid)) {
+            return entry.nodeId;
+        }
+        return -1;
+    }
+
+    /**
+     * Cache the ID of a node, unless a mapping has been invalidated since the node has been looked up (or created).
+     *
+     * @param uuid    of the node.
+     * @param nodeId  ID of the node.
+     * @param version of the cache obtained by {@link #version()} before the lookup (or commit) started.
+     */
+    void put(Object uuid, long nodeId, long version) {
+        int slot = slot(uuid);
+        Entry entry = new Entry(uuid, nodeId);
+        entries.set(slot, entry);
+
+        //check after publishing; an invalidation that happens after this check will see (and remove) the entry
+        if (this.version.get() != version) {
+            entries.compareAndSet(slot, entry, null);
+        }
+    }
+
+    /**
+     * Remove a UUID from the cache, if present.
+     *
+     * @param uuid to remove.
+     */
+    void invalidate(Object uuid) {
+        version.incrementAndGet();
+
+        int slot = slot(uuid);
+        Entry entry = entries.get(slot);
+        if (entry != null && entry.uuid.equals(uuid)) {
+            entries.compareAndSet(slot, entry, null);
+        }
+    }
+
+    /**
+     * Take a snapshot of the cached mappings.
+     *
+     * @return UUID to node ID map.
+     */
+    Map<Object, Long> snapshot() {
+        Map<Object, Long> snapshot = new LinkedHashMap<>();
+        for (int slot = 0; slot < entries.length(); slot++) {
+            Entry entry = entries.get(slot);
+            if (entry != null) {
+                snapshot.put(entry.uuid, entry.nodeId);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return current version of the cache, to be passed to {@link #put(Object, long, long)}.
+     */
+    long version() {
+        return version.get();
+    }
+
+    private int slot(Object uuid) {
+        int hash = uuid.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static final class Entry {
+        private final Object uuid;
+        private final long nodeId;
+
+        private Entry(Object uuid, long nodeId) {
+            this.uuid = uuid;
+            this.nodeId = nodeId;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Nodes whose UUIDs start with a prefix, returned by {@link UuidModule#findByPrefix(org.neo4j.graphdb.GraphDatabaseService, String, int)}.
+ */
+public class UuidPrefixMatches {
+
+    private final String prefix;
+    private final List<Match> matches = new ArrayList<>();
+    private boolean truncated;
+
+    UuidPrefixMatches(String prefix) {
+        this.prefix = prefix;
+    }
+
+    void add(Match match) {
+        matches.add(match);
+    }
+
+    void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    /**
+     * @return the prefix, normalized.
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return matching nodes, ordered by UUID.
+     */
+    public List<Match> getMatches() {
+        return matches;
+    }
+
+    /**
+     * @return true iff the prefix doesn't identify a single node, i.e. more than one node matches it, including those
+     * not returned.
+     */
+    public boolean isAmbiguous() {
+        return truncated || matches.size() > 1;
+    }
+
+    /**
+     * @return true iff more nodes match than have been returned.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * A node whose UUID matches the prefix.
+     */
+    public static class Match {
+
+        private final long nodeId;
+        private final Object uuid;
+
+        Match(long nodeId, Object uuid) {
+            this.nodeId = nodeId;
+            this.uuid = uuid;
+        }
+
+        public long getNodeId() {
+            return nodeId;
+        }
+
+        public Object getUuid() {
+            return uuid;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+/**
+ * How strictly the {@link UuidModule} guards UUIDs of existing nodes against changes made by other transactions.
+ */
+public enum UuidProtectionMode {
+
+    /**
+     * Roll back transactions that remove or modify the UUID of a node. Every changed node is checked on commit.
+     */
+    STRICT,
+
+    /**
+     * Roll back transactions that remove the UUID of a node, but allow modifying it. Every changed node is checked on
+     * commit. A node with a modified UUID is re-indexed by the new one (which must not be used by another node,
+     * otherwise the transaction is rolled back), and the change is published like one made by a repair.
+     */
+    DENY_REMOVAL_ONLY,
+
+    /**
+     * Only assign UUIDs to created nodes, don't check changed nodes at all, so that updates cost nothing. Removed or
+     * modified UUIDs aren't noticed, so a node stays indexed by the UUID it was assigned until it is deleted. Such
+     * nodes can be found by an audit and fixed by a repair.
+     */
+    ASSIGN_ONLY
+}
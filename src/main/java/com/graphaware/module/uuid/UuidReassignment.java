@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+/**
+ * A UUID of a node that has been replaced (or assigned for the first time) by a {@link UuidRepair}.
+ */
+final class UuidReassignment {
+
+    private final long nodeId;
+    private final Object oldUuid;
+    private final Object newUuid;
+
+    UuidReassignment(long nodeId, Object oldUuid, Object newUuid) {
+        this.nodeId = nodeId;
+        this.oldUuid = oldUuid;
+        this.newUuid = newUuid;
+    }
+
+    long getNodeId() {
+        return nodeId;
+    }
+
+    Object getOldUuid() {
+        return oldUuid;
+    }
+
+    Object getNewUuid() {
+        return newUuid;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import com.graphaware.tx.executor.batch.IterableInputBatchTransactionExecutor;
+import com.graphaware.tx.executor.batch.UnitOfWork;
+import com.graphaware.tx.executor.single.TransactionCallback;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.tooling.GlobalGraphOperations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Repair of UUIDs assigned by {@link UuidModule}, run in the background. Assigns a fresh UUID to every included node
+ * that has a missing or malformed one, in throttled batches.
+ * <p/>
+ * Every reassignment is logged to a tab-separated mapping file (node ID, old UUID, new UUID; old UUID is empty if there
+ * was none), once the batch that made it has been committed. Backslashes, tabs and line breaks in UUIDs are escaped
+ * as in the {@link UuidChangeLog}, since malformed UUIDs being repaired can contain them.
+ */
+public class UuidRepair implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UuidRepair.class);
+
+    private final GraphDatabaseService database;
+    private final UuidModule module;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final File mappingFile;
+
+    private final AtomicLong repairedNodes = new AtomicLong();
+    private volatile boolean finished;
+    private Writer writer;
+
+    /**
+     * Construct a new repair.
+     *
+     * @param database    to repair.
+     * @param module      whose UUIDs are being repaired.
+     * @param batchSize   number of nodes to process in a single transaction.
+     * @param pauseMillis number of milliseconds to pause between batches, to leave some capacity for regular traffic.
+     * @param mappingFile to log old to new UUID mappings to. Appended to if it exists.
+     */
+    UuidRepair(GraphDatabaseService database, UuidModule module, int batchSize, long pauseMillis, File mappingFile) {
+        this.database = database;
+        this.module = module;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+        this.mappingFile = mappingFile;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+        LOG.info("Repairing UUIDs, logging reassignments to {}", mappingFile.getAbsolutePath());
+
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(mappingFile, true), Charset.forName("UTF-8")));
+        } catch (IOException e) {
+            LOG.error("Could not open UUID mapping file " + mappingFile.getAbsolutePath() + ", not repairing UUIDs", e);
+            finished = true;
+            return;
+        }
+
+        try {
+            module.startRepairing(this);
+
+            new IterableInputBatchTransactionExecutor<>(
+                    database,
+                    batchSize,
+                    new TransactionCallback<Iterable<Node>>() {
+                        @Override
+                        public Iterable<Node> doInTransaction(GraphDatabaseService database) throws Exception {
+                            return GlobalGraphOperations.at(database).getAllNodes();
+                        }
+                    },
+                    new UnitOfWork<Node>() {
+                        @Override
+                        public void execute(GraphDatabaseService database, Node node, int batchNumber, int stepNumber) {
+                            if (stepNumber == 1 && batchNumber > 1) {
+                                pause();
+                            }
+                            module.repairUuid(node);
+                        }
+                    }
+            ).execute();
+        } finally {
+            module.stopRepairing();
+            close();
+            finished = true;
+        }
+
+        LOG.info("Finished repairing UUIDs, {} nodes have been assigned a new UUID", repairedNodes.get());
+    }
+
+    /**
+     * Log reassignments made by a committed transaction.
+     *
+     * @param reassignments to log.
+     */
+    synchronized void committed(List<UuidReassignment> reassignments) {
+        try {
+            for (UuidReassignment reassignment : reassignments) {
+                writer.write(Long.toString(reassignment.getNodeId()));
+                writer.write('\t');
+                writer.write(reassignment.getOldUuid() == null ? "" : UuidChangeLog.escape(reassignment.getOldUuid().toString()));
+                writer.write('\t');
+                writer.write(UuidChangeLog.escape(reassignment.getNewUuid().toString()));
+                writer.write('\n');
+            }
+            writer.flush();
+        } catch (IOException e) {
+            LOG.error("Could not log UUID reassignments to " + mappingFile.getAbsolutePath(), e);
+        }
+
+        repairedNodes.addAndGet(reassignments.size());
+    }
+
+    public long getRepairedNodes() {
+        return repairedNodes.get();
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public String getMappingFile() {
+        return mappingFile.getAbsolutePath();
+    }
+
+    private void pause() {
+        if (pauseMillis <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            LOG.warn("Could not close UUID mapping file " + mappingFile.getAbsolutePath(), e);
+        }
+    }
+}
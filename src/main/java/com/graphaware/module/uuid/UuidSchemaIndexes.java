@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.neo4j.graphdb.DynamicLabel;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.schema.ConstraintDefinition;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.neo4j.graphdb.schema.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schema indexes (or uniqueness constraints) on the UUID property of configured labels, so that UUID lookups and
+ * Cypher queries like {@code MATCH (n:Person {uuid:{uuid}})} are index seeks rather than label scans. Once created,
+ * the indexes are maintained by Neo4j.
+ */
+class UuidSchemaIndexes {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UuidSchemaIndexes.class);
+
+    private static final long INDEX_ONLINE_TIMEOUT_MINUTES = 10;
+
+    private final String uuidProperty;
+    private final List<Label> labels = new ArrayList<>();
+    private final boolean unique;
+
+    /**
+     * Construct a new set of indexes.
+     *
+     * @param configuration of the {@link UuidModule} the indexes are for.
+     */
+    UuidSchemaIndexes(UuidConfiguration configuration) {
+        this.uuidProperty = configuration.getUuidProperty();
+        this.unique = configuration.isUniqueConstraint();
+        for (String label : configuration.getSchemaIndexLabels()) {
+            labels.add(DynamicLabel.label(label));
+        }
+    }
+
+    /**
+     * Create the indexes (or constraints) that don't exist yet and wait for them to come online. A constraint that
+     * can't be created, because some nodes already share a UUID, is replaced by a plain index.
+     *
+     * @param database to create the indexes in.
+     */
+    void create(GraphDatabaseService database) {
+        for (Label label : labels) {
+            try (Transaction tx = database.beginTx()) {
+                if (!exists(database.schema(), label)) {
+                    create(database.schema(), label);
+                }
+                tx.success();
+            } catch (RuntimeException e) {
+                if (!unique) {
+                    throw e;
+                }
+                LOG.error("Could not create uniqueness constraint on :" + label.name() + "(" + uuidProperty + "), creating an index instead. " +
+                        "Audit and repair UUIDs, then re-initialize the module to get the constraint.", e);
+                try (Transaction tx = database.beginTx()) {
+                    database.schema().indexFor(label).on(uuidProperty).create();
+                    tx.success();
+                }
+            }
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            database.schema().awaitIndexesOnline(INDEX_ONLINE_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            tx.success();
+        }
+    }
+
+    private boolean exists(Schema schema, Label label) {
+        for (IndexDefinition index : schema.getIndexes(label)) {
+            for (String key : index.getPropertyKeys()) {
+                if (uuidProperty.equals(key)) {
+                    if (unique && !index.isConstraintIndex()) {
+                        LOG.warn("There is a plain index on :{}({}), not creating a uniqueness constraint", label.name(), uuidProperty);
+                    }
+                    return true;
+                }
+            }
+        }
+
+        for (ConstraintDefinition constraint : schema.getConstraints(label)) {
+            for (String key : constraint.getPropertyKeys()) {
+                if (uuidProperty.equals(key)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private void create(Schema schema, Label label) {
+        if (unique) {
+            schema.constraintFor(label).assertPropertyIsUnique(uuidProperty).create();
+            LOG.info("Created uniqueness constraint on :{}({})", label.name(), uuidProperty);
+        } else {
+            schema.indexFor(label).on(uuidProperty).create();
+            LOG.info("Created index on :{}({})", label.name(), uuidProperty);
+        }
+    }
+
+    /**
+     * Find a node by UUID using the indexes. Must be called within a transaction.
+     *
+     * @param database to search.
+     * @param uuid     of the node.
+     * @return node, null if no node with one of the configured labels has the UUID.
+     */
+    Node find(GraphDatabaseService database, Object uuid) {
+        for (Label label : labels) {
+            try (ResourceIterator<Node> nodes = database.findNodesByLabelAndProperty(label, uuidProperty, uuid).iterator()) {
+                if (nodes.hasNext()) {
+                    return nodes.next();
+                }
+            }
+        }
+        return null;
+    }
+}
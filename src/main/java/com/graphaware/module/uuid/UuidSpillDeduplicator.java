@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds UUIDs shared by more than one node, using bounded memory regardless of the number of UUIDs.
+ * <p/>
+ * UUIDs are hash-partitioned into files on disk as they're added. Each partition is then deduplicated in memory on its
+ * own, so memory use is proportional to the size of the largest partition rather than to the total number of UUIDs.
+ * {@link #add(String, long)} can be called from multiple threads concurrently.
+ */
+class UuidSpillDeduplicator implements Closeable {
+
+    static final int ENTRIES_PER_PARTITION = 250_000;
+
+    private final File[] files;
+    private final DataOutputStream[] outputs;
+
+    /**
+     * Handler of duplicate UUIDs.
+     */
+    interface DuplicateHandler {
+
+        /**
+         * Handle a UUID shared by multiple nodes.
+         *
+         * @param uuid    the UUID.
+         * @param nodeIds IDs of the nodes (or other entries) sharing the UUID, at least two.
+         */
+        void handle(String uuid, List<Long> nodeIds);
+    }
+
+    /**
+     * Create a new deduplicator.
+     *
+     * @param directory       in which to create temporary partition files.
+     * @param expectedEntries estimated number of UUIDs that will be added, used to determine the number of partitions.
+     * @throws IOException in case the partition files can't be created.
+     */
+    UuidSpillDeduplicator(File directory, long expectedEntries) throws IOException {
+        int partitions = (int) Math.max(1, Math.min(4096, expectedEntries / ENTRIES_PER_PARTITION + 1));
+
+        files = new File[partitions];
+        outputs = new DataOutputStream[partitions];
+
+        for (int i = 0; i < partitions; i++) {
+            files[i] = File.createTempFile("uuid-dedup-", ".part", directory);
+            files[i].deleteOnExit();
+            outputs[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(files[i]), 64 * 1024));
+        }
+    }
+
+    /**
+     * Add a UUID.
+     *
+     * @param uuid   to add.
+     * @param nodeId ID of the node (or other entry) that has the UUID.
+     * @throws IOException in case the UUID can't be written to its partition.
+     */
+    void add(String uuid, long nodeId) throws IOException {
+        DataOutputStream output = outputs[partition(uuid)];
+        synchronized (output) {
+            output.writeUTF(uuid);
+            output.writeLong(nodeId);
+        }
+    }
+
+    /**
+     * Find all duplicate UUIDs, one partition at a time. No more UUIDs can be added once this method has been called.
+     *
+     * @param handler to handle each duplicate UUID.
+     * @return number of duplicate UUIDs found.
+     * @throws IOException in case the partitions can't be read.
+     */
+    long findDuplicates(DuplicateHandler handler) throws IOException {
+        closeOutputs();
+
+        long duplicates = 0;
+        for (File file : files) {
+            Map<String, Long> seen = new HashMap<>();
+            Map<String, List<Long>> partitionDuplicates = new HashMap<>();
+
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+                while (true) {
+                    String uuid;
+                    try {
+                        uuid = input.readUTF();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    long nodeId = input.readLong();
+
+                    Long previous = seen.put(uuid, nodeId);
+                    if (previous != null) {
+                        List<Long> nodeIds = partitionDuplicates.get(uuid);
+                        if (nodeIds == null) {
+                            nodeIds = new ArrayList<>();
+                            nodeIds.add(previous);
+                            partitionDuplicates.put(uuid, nodeIds);
+                        }
+                        nodeIds.add(nodeId);
+                    }
+                }
+            }
+
+            for (Map.Entry<String, List<Long>> duplicate : partitionDuplicates.entrySet()) {
+                handler.handle(duplicate.getKey(), duplicate.getValue());
+            }
+            duplicates += partitionDuplicates.size();
+        }
+
+        return duplicates;
+    }
+
+    /**
+     * Delete all partition files.
+     */
+    @Override
+    public void close() throws IOException {
+        closeOutputs();
+        for (File file : files) {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    private void closeOutputs() throws IOException {
+        for (DataOutputStream output : outputs) {
+            synchronized (output) {
+                output.close();
+            }
+        }
+    }
+
+    private int partition(String uuid) {
+        int hash = uuid.hashCode() * 0x9E3779B9;
+        return (hash >>> 1) % outputs.length;
+    }
+}
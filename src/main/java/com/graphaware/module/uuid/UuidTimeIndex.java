@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.index.IndexHits;
+import org.neo4j.index.lucene.QueryContext;
+import org.neo4j.index.lucene.ValueContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Numeric index of nodes by the time their (time-ordered) UUIDs have been generated, kept in the same legacy index as
+ * {@link UuidIndex} under a separate key. Allows finding nodes created in a time range without a "createdAt" property.
+ * <p/>
+ * The indexed value is a sort key that orders UUIDs by generation time: the 60-bit timestamp (in 100-nanosecond
+ * intervals) for version 1 UUIDs, and the ID itself for {@link UuidGeneratorType#SNOWFLAKE} IDs. UUIDs that aren't
+ * time-based (e.g. name-based ones) aren't indexed.
+ */
+class UuidTimeIndex {
+
+    private final UuidIndex uuidIndex;
+    private final String uuidProperty;
+    private final String key;
+    private final UuidEncoding encoding;
+    private final boolean numeric;
+
+    /**
+     * Construct a new index.
+     *
+     * @param configuration of the {@link UuidModule} maintaining the index.
+     * @param uuidIndex     the entries are kept in.
+     */
+    UuidTimeIndex(UuidConfiguration configuration, UuidIndex uuidIndex) {
+        this.uuidIndex = uuidIndex;
+        this.uuidProperty = configuration.getUuidProperty();
+        this.key = uuidProperty + "_time";
+        this.encoding = configuration.getEncoding();
+        this.numeric = configuration.getGeneratorType().isNumeric();
+    }
+
+    /**
+     * Index a node by the generation time of its UUID, if it is time-based.
+     *
+     * @param node to index.
+     * @param uuid of the node.
+     */
+    void add(Node node, Object uuid) {
+        ValueContext value = value(uuid);
+        if (value != null) {
+            uuidIndex.addEntry(node, key, value);
+        }
+    }
+
+    /**
+     * Remove a node from the index.
+     *
+     * @param node to remove.
+     * @param uuid of the node.
+     */
+    void remove(Node node, Object uuid) {
+        ValueContext value = value(uuid);
+        if (value != null) {
+            uuidIndex.removeEntry(node, key, value);
+        }
+    }
+
+    /**
+     * @return key of the index entries.
+     */
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Compute the value a node with the given UUID is indexed by.
+     *
+     * @param uuid of the node.
+     * @return value, null if the UUID isn't time-based.
+     */
+    ValueContext value(Object uuid) {
+        long sortKey = sortKey(uuid);
+        return sortKey >= 0 ? ValueContext.numeric(sortKey) : null;
+    }
+
+    /**
+     * Find nodes whose UUIDs have been generated in a time range, ordered by generation time (and node ID for UUIDs
+     * generated at the same time).
+     *
+     * @param database   to search.
+     * @param fromMillis start of the range (inclusive), in ms since epoch.
+     * @param toMillis   end of the range (exclusive), in ms since epoch.
+     * @param cursor     returned with the previous page, null for the first page.
+     * @param limit      maximum number of nodes to return.
+     * @return page of nodes.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    UuidTimeRangePage find(GraphDatabaseService database, long fromMillis, long toMillis, String cursor, int limit) {
+        long cursorKey = -1;
+        long cursorNodeId = -1;
+        if (cursor != null) {
+            String[] parts = cursor.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Malformed cursor " + cursor);
+            }
+            cursorKey = Long.parseLong(parts[0]);
+            cursorNodeId = Long.parseLong(parts[1]);
+        }
+
+        long fromKey = Math.max(sortKeyAt(fromMillis), cursorKey);
+        long toKey = sortKeyAt(toMillis);
+
+        List<SortedNode> candidates = new ArrayList<>();
+
+        try (Transaction tx = database.beginTx()) {
+            IndexHits<Node> hits = uuidIndex.query(database, QueryContext.numericRange(key, fromKey, toKey, true, false).sortNumeric(key, false));
+            try {
+                List<SortedNode> group = new ArrayList<>();
+                for (Node node : hits) {
+                    Object uuid = node.getProperty(uuidProperty, null);
+                    long sortKey = sortKey(uuid);
+                    if (sortKey < 0) {
+                        continue;
+                    }
+
+                    if (!group.isEmpty() && group.get(0).sortKey != sortKey) {
+                        addGroup(group, candidates, cursorKey, cursorNodeId);
+                        group.clear();
+                        if (candidates.size() > limit) {
+                            break;
+                        }
+                    }
+                    group.add(new SortedNode(node.getId(), uuid, sortKey));
+                }
+                addGroup(group, candidates, cursorKey, cursorNodeId);
+            } finally {
+                hits.close();
+            }
+            tx.success();
+        }
+
+        UuidTimeRangePage page = new UuidTimeRangePage();
+        for (int i = 0; i < Math.min(limit, candidates.size()); i++) {
+            SortedNode node = candidates.get(i);
+            page.add(new UuidTimeRangePage.Entry(node.nodeId, node.uuid, millisOf(node.sortKey)));
+        }
+
+        if (candidates.size() > limit && limit > 0) {
+            SortedNode last = candidates.get(limit - 1);
+            page.setNextCursor(last.sortKey + ":" + last.nodeId);
+        }
+
+        return page;
+    }
+
+    /**
+     * Add nodes with the same sort key to the result, in the order of their IDs, skipping those returned on previous pages.
+     */
+    private void addGroup(List<SortedNode> group, List<SortedNode> candidates, long cursorKey, long cursorNodeId) {
+        Collections.sort(group, new Comparator<SortedNode>() {
+            @Override
+            public int compare(SortedNode o1, SortedNode o2) {
+                return Long.compare(o1.nodeId, o2.nodeId);
+            }
+        });
+
+        for (SortedNode node : group) {
+            if (node.sortKey < cursorKey || (node.sortKey == cursorKey && node.nodeId <= cursorNodeId)) {
+                continue;
+            }
+            candidates.add(node);
+        }
+    }
+
+    /**
+     * Compute the sort key of a UUID.
+     *
+     * @param uuid to compute the key for.
+     * @return key, -1 if the UUID isn't time-based.
+     */
+    long sortKey(Object uuid) {
+        if (numeric) {
+            return uuid instanceof Long && (Long) uuid > 0 ? (Long) uuid : -1;
+        }
+
+        if (!(uuid instanceof String) || !encoding.isValid((String) uuid)) {
+            return -1;
+        }
+
+        long msb = encoding.decode((String) uuid)[0];
+        if (((msb >>> 12) & 0xF) != 1) {
+            return -1;
+        }
+
+        return ((msb & 0x0FFFL) << 48) | (((msb >>> 16) & 0xFFFFL) << 32) | (msb >>> 32);
+    }
+
+    /**
+     * Compute the lowest sort key of UUIDs generated at a given time.
+     */
+    private long sortKeyAt(long millis) {
+        if (numeric) {
+            long sinceEpoch = Math.max(0, millis - SnowflakeUuidGenerator.EPOCH);
+            return sinceEpoch >= 1L << (63 - SnowflakeUuidGenerator.TIMESTAMP_SHIFT) ? Long.MAX_VALUE : sinceEpoch << SnowflakeUuidGenerator.TIMESTAMP_SHIFT;
+        }
+        if (millis >= (Long.MAX_VALUE - StripedUuidGenerator.UUID_EPOCH_OFFSET) / 10_000) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, millis * 10_000 + StripedUuidGenerator.UUID_EPOCH_OFFSET);
+    }
+
+    private long millisOf(long sortKey) {
+        if (numeric) {
+            return SnowflakeUuidGenerator.getTimestamp(sortKey);
+        }
+        return (sortKey - StripedUuidGenerator.UUID_EPOCH_OFFSET) / 10_000;
+    }
+
+    private static final class SortedNode {
+
+        private final long nodeId;
+        private final Object uuid;
+        private final long sortKey;
+
+        private SortedNode(long nodeId, Object uuid, long sortKey) {
+            this.nodeId = nodeId;
+            this.uuid = uuid;
+            this.sortKey = sortKey;
+        }
+    }
+}
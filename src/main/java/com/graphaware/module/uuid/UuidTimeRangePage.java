@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of nodes returned by {@link UuidModule#findByTimeRange(org.neo4j.graphdb.GraphDatabaseService, long, long, String, int)},
+ * in the order their UUIDs have been generated.
+ */
+public class UuidTimeRangePage {
+
+    private final List<Entry> nodes = new ArrayList<>();
+    private String nextCursor;
+
+    void add(Entry entry) {
+        nodes.add(entry);
+    }
+
+    void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return nodes on this page, ordered by UUID generation time.
+     */
+    public List<Entry> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return cursor to pass in to get the next page, null if this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * A node and its UUID.
+     */
+    public static class Entry {
+
+        private final long nodeId;
+        private final Object uuid;
+        private final long timestamp;
+
+        Entry(long nodeId, Object uuid, long timestamp) {
+            this.nodeId = nodeId;
+            this.uuid = uuid;
+            this.timestamp = timestamp;
+        }
+
+        public long getNodeId() {
+            return nodeId;
+        }
+
+        public Object getUuid() {
+            return uuid;
+        }
+
+        /**
+         * @return time the UUID has been generated, in ms since epoch.
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+}
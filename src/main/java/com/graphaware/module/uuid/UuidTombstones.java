@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory store of tombstones, i.e. UUIDs of deleted nodes, kept for a configured retention period, so that clients
+ * can tell a deleted UUID from one that never existed.
+ * <p/>
+ * UUIDs are stored compactly: String UUIDs as two longs (as opposed to a String of up to 36 characters), numeric ones
+ * as a single long. Lookups are O(1). Expired tombstones are removed lazily on lookup and in bulk every
+ * {@link #PURGE_INTERVAL} additions.
+ */
+class UuidTombstones {
+
+    static final int PURGE_INTERVAL = 1024;
+
+    private final UuidEncoding encoding;
+    private final boolean numeric;
+    private final long retentionMillis;
+    private final ConcurrentMap<Object, Long> tombstones = new ConcurrentHashMap<>();
+    private final AtomicInteger additionsSincePurge = new AtomicInteger();
+
+    /**
+     * Construct a new store.
+     *
+     * @param configuration   of the module the store is for.
+     * @param retentionMillis how long to keep tombstones for.
+     */
+    UuidTombstones(UuidConfiguration configuration, long retentionMillis) {
+        this.encoding = configuration.getEncoding();
+        this.numeric = configuration.getGeneratorType().isNumeric();
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * Record changes of UUIDs: deleted UUIDs become tombstones, UUIDs assigned again (e.g. by an upsert) stop being ones.
+     *
+     * @param change    to record.
+     * @param timestamp of the change, in ms since epoch.
+     */
+    void record(UuidChange change, long timestamp) {
+        Object key = key(change.getUuid());
+
+        if (change.getType() == UuidChange.Type.ASSIGNED) {
+            tombstones.remove(key);
+            return;
+        }
+
+        if (timestamp + retentionMillis <= System.currentTimeMillis()) {
+            return;
+        }
+
+        tombstones.put(key, timestamp);
+
+        if (additionsSincePurge.incrementAndGet() >= PURGE_INTERVAL) {
+            additionsSincePurge.set(0);
+            purgeExpired();
+        }
+    }
+
+    /**
+     * Check whether a UUID belonged to a node deleted within the retention period.
+     *
+     * @param uuid to check, normalized.
+     * @return true iff the UUID is a tombstone.
+     */
+    boolean contains(Object uuid) {
+        Object key = key(uuid);
+        Long deleted = tombstones.get(key);
+        if (deleted == null) {
+            return false;
+        }
+
+        if (isExpired(deleted, System.currentTimeMillis())) {
+            tombstones.remove(key, deleted);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return number of tombstones, including expired ones not purged yet.
+     */
+    int size() {
+        return tombstones.size();
+    }
+
+    /**
+     * Remove all expired tombstones.
+     */
+    void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Object, Long>> iterator = tombstones.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (isExpired(iterator.next().getValue(), now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private boolean isExpired(long deleted, long now) {
+        return deleted + retentionMillis <= now;
+    }
+
+    private Object key(Object uuid) {
+        if (numeric || !(uuid instanceof String) || !encoding.isValid((String) uuid)) {
+            return uuid;
+        }
+
+        long[] bits = encoding.decode((String) uuid);
+        return new Key(bits[0], bits[1]);
+    }
+
+    /**
+     * Compact representation of a 128-bit UUID.
+     */
+    private static final class Key {
+
+        private final long msb;
+        private final long lsb;
+
+        private Key(long msb, long lsb) {
+            this.msb = msb;
+            this.lsb = lsb;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+
+            return msb == key.msb && lsb == key.lsb;
+        }
+
+        @Override
+        public int hashCode() {
+            long hash = msb ^ lsb;
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+}
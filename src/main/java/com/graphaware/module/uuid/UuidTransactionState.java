@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State passed by {@link UuidModule} from {@link UuidModule#beforeCommit(com.graphaware.tx.event.improved.api.ImprovedTransactionData)}
+ * to {@link UuidModule#afterCommit(UuidTransactionState)}.
+ */
+final class UuidTransactionState {
+
+    private final UuidRepair repair;
+    private final long cacheVersion;
+    private final List<UuidReassignment> reassignments = new ArrayList<>();
+    private final List<UuidChange> changes = new ArrayList<>();
+
+    /**
+     * Create new state.
+     *
+     * @param repair       that made the transaction, null if it hasn't been made by a repair.
+     * @param cacheVersion version of the {@link UuidNodeIdCache} when the transaction started committing.
+     */
+    UuidTransactionState(UuidRepair repair, long cacheVersion) {
+        this.repair = repair;
+        this.cacheVersion = cacheVersion;
+    }
+
+    UuidRepair getRepair() {
+        return repair;
+    }
+
+    long getCacheVersion() {
+        return cacheVersion;
+    }
+
+    List<UuidReassignment> getReassignments() {
+        return reassignments;
+    }
+
+    /**
+     * @return changes to publish to the {@link UuidChangeLog} once the transaction commits.
+     */
+    List<UuidChange> getChanges() {
+        return changes;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A node to be created or updated by {@link UuidModule#upsert(org.neo4j.graphdb.GraphDatabaseService, List, int)},
+ * identified by its UUID.
+ */
+public class UuidUpsertRecord {
+
+    private String uuid;
+    private List<String> labels = Collections.emptyList();
+    private Map<String, Object> properties = Collections.emptyMap();
+
+    public UuidUpsertRecord() {
+    }
+
+    public UuidUpsertRecord(String uuid, List<String> labels, Map<String, Object> properties) {
+        this.uuid = uuid;
+        this.labels = labels;
+        this.properties = properties;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public void setUuid(String uuid) {
+        this.uuid = uuid;
+    }
+
+    /**
+     * @return labels to add to the node. Existing labels are never removed.
+     */
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    public void setLabels(List<String> labels) {
+        this.labels = labels;
+    }
+
+    /**
+     * @return properties to set on the node, null values remove the property. Other existing properties are retained.
+     */
+    public Map<String, Object> getProperties() {
+        return properties;
+    }
+
+    public void setProperties(Map<String, Object> properties) {
+        this.properties = properties;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of {@link UuidModule#upsert(org.neo4j.graphdb.GraphDatabaseService, List, int)}.
+ */
+public class UuidUpsertResult {
+
+    private int createdNodes;
+    private int updatedNodes;
+    private final List<Long> nodeIds = new ArrayList<>();
+
+    void created(long nodeId) {
+        createdNodes++;
+        nodeIds.add(nodeId);
+    }
+
+    void updated(long nodeId) {
+        updatedNodes++;
+        nodeIds.add(nodeId);
+    }
+
+    /**
+     * @return number of nodes created, because no node with the record's UUID existed.
+     */
+    public int getCreatedNodes() {
+        return createdNodes;
+    }
+
+    /**
+     * @return number of existing nodes updated.
+     */
+    public int getUpdatedNodes() {
+        return updatedNodes;
+    }
+
+    /**
+     * @return IDs of the created or updated nodes, in the order of the records.
+     */
+    public List<Long> getNodeIds() {
+        return nodeIds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "created=" + createdNodes + ", updated=" + updatedNodes;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import com.graphaware.common.policy.NodeInclusionPolicy;
+import org.neo4j.graphdb.DynamicLabel;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.TransactionFailureException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates or updates nodes identified by their UUIDs ("merge by UUID"), in batches, each in a single transaction.
+ * <p/>
+ * Nodes are resolved through the {@link UuidIndex}, so each record costs an index lookup rather than a scan. When no node
+ * has a record's UUID, a node is created and claimed in the index with a put-if-absent, which locks the UUID until the
+ * transaction finishes. If a concurrent transaction has created a node with the same UUID in the meantime, the batch is
+ * rolled back and retried (upserts are idempotent), so concurrent upserts of the same UUID never create two nodes.
+ * <p/>
+ * Records that would create a node the module's inclusion policy excludes (once its labels and properties are set) are
+ * rejected, as the module would neither index nor protect the UUID of such a node.
+ */
+class UuidUpserter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UuidUpserter.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final UuidModule module;
+    private final UuidIndex uuidIndex;
+    private final String uuidProperty;
+    private final NodeInclusionPolicy inclusionPolicy;
+
+    /**
+     * Construct a new upserter.
+     *
+     * @param module        whose UUIDs records are identified by.
+     * @param configuration of the module.
+     * @param uuidIndex     index of nodes by UUID maintained by the module.
+     */
+    UuidUpserter(UuidModule module, UuidConfiguration configuration, UuidIndex uuidIndex) {
+        this.module = module;
+        this.uuidIndex = uuidIndex;
+        this.uuidProperty = configuration.getUuidProperty();
+        this.inclusionPolicy = configuration.getInclusionPolicies().getNodeInclusionPolicy();
+    }
+
+    /**
+     * Upsert records.
+     *
+     * @param database  to upsert records in.
+     * @param records   to upsert.
+     * @param batchSize number of records upserted in a single transaction.
+     * @return result of the upsert.
+     * @throws IllegalArgumentException if a record has no or an invalid UUID, or would create a node excluded by the
+     *                                  inclusion policy. Batches preceding the one with the invalid record have been
+     *                                  committed.
+     */
+    UuidUpsertResult upsert(GraphDatabaseService database, List<UuidUpsertRecord> records, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+
+        UuidUpsertResult result = new UuidUpsertResult();
+
+        for (int from = 0; from < records.size(); from += batchSize) {
+            upsertBatch(database, records.subList(from, Math.min(records.size(), from + batchSize)), result);
+        }
+
+        return result;
+    }
+
+    private void upsertBatch(GraphDatabaseService database, List<UuidUpsertRecord> batch, UuidUpsertResult result) {
+        long[] nodeIds = new long[batch.size()];
+        boolean[] created = new boolean[batch.size()];
+
+        for (int attempt = 1; ; attempt++) {
+            try (Transaction tx = database.beginTx()) {
+                Map<Object, Node> upserted = new HashMap<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    created[i] = upsert(database, batch.get(i), upserted, nodeIds, i);
+                }
+                tx.success();
+                break;
+            } catch (ConcurrentUpsertException | TransactionFailureException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                LOG.debug("Retrying upsert of {} records after a concurrent modification: {}", batch.size(), e.getMessage());
+            }
+        }
+
+        for (int i = 0; i < nodeIds.length; i++) {
+            if (created[i]) {
+                result.created(nodeIds[i]);
+            } else {
+                result.updated(nodeIds[i]);
+            }
+        }
+    }
+
+    /**
+     * Upsert a single record.
+     *
+     * @param database to upsert the record in.
+     * @param record   to upsert.
+     * @param upserted nodes upserted so far in the current transaction, by UUID.
+     * @param nodeIds  to store the upserted node's ID in.
+     * @param index    of the record in its batch.
+     * @return true iff a node has been created.
+     */
+    private boolean upsert(GraphDatabaseService database, UuidUpsertRecord record, Map<Object, Node> upserted, long[] nodeIds, int index) {
+        if (record.getUuid() == null) {
+            throw new IllegalArgumentException("Record without a UUID");
+        }
+
+        Object uuid = module.normalizeUuid(record.getUuid());
+        if (!module.isValidUuid(uuid)) {
+            throw new IllegalArgumentException(record.getUuid() + " is not a valid UUID");
+        }
+
+        boolean created = false;
+
+        Node node = upserted.get(uuid);
+        if (node == null) {
+            node = uuidIndex.get(database, uuid);
+        }
+
+        if (node == null) {
+            node = database.createNode();
+            if (uuidIndex.addIfAbsent(node, uuid) != null) {
+                throw new ConcurrentUpsertException(uuid);
+            }
+            node.setProperty(uuidProperty, uuid);
+            created = true;
+        }
+
+        upserted.put(uuid, node);
+        update(node, record);
+
+        if (created && !inclusionPolicy.include(node)) {
+            throw new IllegalArgumentException("Record with UUID " + record.getUuid() + " would create a node excluded by the inclusion policy");
+        }
+
+        nodeIds[index] = node.getId();
+
+        return created;
+    }
+
+    private void update(Node node, UuidUpsertRecord record) {
+        if (record.getLabels() != null) {
+            for (String label : record.getLabels()) {
+                node.addLabel(DynamicLabel.label(label));
+            }
+        }
+
+        if (record.getProperties() != null) {
+            for (Map.Entry<String, Object> property : record.getProperties().entrySet()) {
+                if (uuidProperty.equals(property.getKey())) {
+                    continue;
+                }
+
+                if (property.getValue() == null) {
+                    node.removeProperty(property.getKey());
+                } else {
+                    node.setProperty(property.getKey(), toPropertyValue(property.getValue()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Convert a value deserialized from JSON to a value Neo4j can store. Lists become arrays of the type of their
+     * first element.
+     *
+     * @param value to convert.
+     * @return property value.
+     */
+    private Object toPropertyValue(Object value) {
+        if (!(value instanceof List)) {
+            return value;
+        }
+
+        List<?> list = (List<?>) value;
+        if (list.isEmpty()) {
+            return new String[0];
+        }
+
+        Object first = list.get(0);
+        if (first instanceof Integer || first instanceof Long) {
+            long[] array = new long[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = ((Number) list.get(i)).longValue();
+            }
+            return array;
+        }
+        if (first instanceof Number) {
+            double[] array = new double[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = ((Number) list.get(i)).doubleValue();
+            }
+            return array;
+        }
+        if (first instanceof Boolean) {
+            boolean[] array = new boolean[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = (Boolean) list.get(i);
+            }
+            return array;
+        }
+
+        String[] array = new String[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = String.valueOf(list.get(i));
+        }
+        return array;
+    }
+
+    /**
+     * Thrown when a node with the UUID of a record has been created by a concurrent transaction.
+     */
+    private static class ConcurrentUpsertException extends RuntimeException {
+
+        ConcurrentUpsertException(Object uuid) {
+            super("Node with UUID " + uuid + " has been created concurrently");
+        }
+    }
+}
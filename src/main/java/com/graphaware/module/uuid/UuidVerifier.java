@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Verification of UUIDs before (or after) a bulk import of nodes that already have them, e.g. from a source system.
+ * Checks that every UUID is well-formed in the configured format and that no two are the same, in bounded memory:
+ * values are streamed from a delimited input file (or scanned from a store, see {@link UuidAuditor}) and spilled into
+ * hash partitions on disk by {@link UuidSpillDeduplicator}.
+ * <p/>
+ * The result is a {@link UuidAuditReport}, in which rows of the input file (numbered from 1, including the header) take
+ * the place of nodes. Can be run from the command line, see {@link #main(String[])}.
+ */
+public class UuidVerifier {
+
+    private static final int AVERAGE_ROW_BYTES = 64;
+
+    private final UuidConfiguration configuration;
+    private final UuidFormat format;
+    private final File spillDirectory;
+
+    /**
+     * Construct a new verifier.
+     *
+     * @param configuration  whose UUID format to verify against.
+     * @param spillDirectory in which to create temporary partition files.
+     */
+    public UuidVerifier(UuidConfiguration configuration, File spillDirectory) {
+        this.configuration = configuration;
+        this.format = UuidFormat.of(configuration);
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Verify UUIDs in a column of a delimited file. Values may be double-quoted. UUIDs are accepted in the canonical
+     * form as well as the configured encoding, so the same UUID in both forms counts as a duplicate.
+     *
+     * @param file      to read, UTF-8.
+     * @param column    index of the column with UUIDs, starting at 0.
+     * @param delimiter of columns.
+     * @param header    true iff the first row is a header to skip.
+     * @return report.
+     * @throws IOException if the file can't be read or partitions can't be written.
+     */
+    public UuidAuditReport verify(File file, int column, char delimiter, boolean header) throws IOException {
+        long start = System.currentTimeMillis();
+        final UuidAuditReport report = new UuidAuditReport();
+
+        try (UuidSpillDeduplicator deduplicator = new UuidSpillDeduplicator(spillDirectory, file.length() / AVERAGE_ROW_BYTES);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+
+            long row = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                row++;
+                if (row == 1 && header) {
+                    continue;
+                }
+
+                report.nodeScanned();
+                report.nodeIncluded();
+
+                String value = field(line, column, delimiter);
+                if (value == null || value.isEmpty()) {
+                    report.missingUuid(row);
+                    continue;
+                }
+
+                Object uuid = format.normalize(value);
+                if (!format.isValid(uuid)) {
+                    report.malformedUuid(row, value);
+                    continue;
+                }
+
+                deduplicator.add(uuid.toString(), row);
+            }
+
+            deduplicator.findDuplicates(new UuidSpillDeduplicator.DuplicateHandler() {
+                @Override
+                public void handle(String uuid, List<Long> rows) {
+                    report.duplicateUuid(uuid, rows);
+                }
+            });
+        }
+
+        report.finished(System.currentTimeMillis() - start);
+        return report;
+    }
+
+    /**
+     * Verify UUIDs of all nodes in a database included by the configured policy.
+     *
+     * @param database to verify.
+     * @return report.
+     */
+    public UuidAuditReport verify(GraphDatabaseService database) {
+        return new UuidAuditor(database, configuration).audit();
+    }
+
+    /**
+     * Extract a field from a delimited line.
+     *
+     * @return the field without surrounding quotes, null if the line has fewer fields.
+     */
+    static String field(String line, int column, char delimiter) {
+        int current = 0;
+        boolean quoted = false;
+        StringBuilder value = new StringBuilder();
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    if (current == column) {
+                        value.append('"');
+                    }
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == delimiter && !quoted) {
+                if (current == column) {
+                    return value.toString().trim();
+                }
+                current++;
+            } else if (current == column) {
+                value.append(c);
+            }
+        }
+
+        return current == column ? value.toString().trim() : null;
+    }
+
+    /**
+     * Verify UUIDs from the command line and print a compact report. Exits with 0 if all UUIDs are fine, 1 if there
+     * are problems, 2 on wrong usage.
+     * <p/>
+     * Usage: {@code UuidVerifier (--file <path> [--column <index>] [--delimiter <char>] [--header] | --store <dir>)
+     * [--tmp <dir>] [<setting>=<value> ...]}, where settings are the module's neo4j.properties settings without the
+     * module prefix, e.g. {@code encoding=base62}.
+     *
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) {
+        String file = null;
+        String store = null;
+        int column = 0;
+        char delimiter = ',';
+        boolean header = false;
+        File spillDirectory = new File(System.getProperty("java.io.tmpdir"));
+        Map<String, String> settings = new HashMap<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--file":
+                        file = args[++i];
+                        break;
+                    case "--store":
+                        store = args[++i];
+                        break;
+                    case "--column":
+                        column = Integer.parseInt(args[++i]);
+                        break;
+                    case "--delimiter":
+                        String value = args[++i];
+                        delimiter = "\\t".equals(value) ? '\t' : value.charAt(0);
+                        break;
+                    case "--header":
+                        header = true;
+                        break;
+                    case "--tmp":
+                        spillDirectory = new File(args[++i]);
+                        break;
+                    default:
+                        int equals = args[i].indexOf('=');
+                        if (equals <= 0) {
+                            throw new IllegalArgumentException("Unknown argument " + args[i]);
+                        }
+                        settings.put(args[i].substring(0, equals), args[i].substring(equals + 1));
+                }
+            }
+
+            if ((file == null) == (store == null)) {
+                throw new IllegalArgumentException("Exactly one of --file and --store must be given");
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: UuidVerifier (--file <path> [--column <index>] [--delimiter <char>] [--header] | --store <dir>) [--tmp <dir>] [<setting>=<value> ...]");
+            System.exit(2);
+            return;
+        }
+
+        UuidVerifier verifier = new UuidVerifier(new UuidBootstrapper().configure(settings, null), spillDirectory);
+
+        UuidAuditReport report;
+        if (file != null) {
+            try {
+                report = verifier.verify(new File(file), column, delimiter, header);
+            } catch (IOException e) {
+                System.err.println("Could not verify " + file + ": " + e.getMessage());
+                System.exit(2);
+                return;
+            }
+        } else {
+            GraphDatabaseService database = new GraphDatabaseFactory().newEmbeddedDatabase(store);
+            try {
+                report = verifier.verify(database);
+            } finally {
+                database.shutdown();
+            }
+        }
+
+        print(report, file != null ? "row" : "node", System.out);
+        System.exit(report.isClean() ? 0 : 1);
+    }
+
+    /**
+     * Print a compact report: one line of counts, followed by one line per example problem.
+     */
+    static void print(UuidAuditReport report, String entry, PrintStream out) {
+        out.println(report);
+        for (Long id : report.getNodesWithMissingUuid()) {
+            out.println("missing\t" + entry + " " + id);
+        }
+        for (Map.Entry<Long, Object> malformed : report.getNodesWithMalformedUuid().entrySet()) {
+            out.println("malformed\t" + entry + " " + malformed.getKey() + "\t" + malformed.getValue());
+        }
+        for (Map.Entry<String, List<Long>> duplicate : report.getNodesWithDuplicateUuid().entrySet()) {
+            out.println("duplicate\t" + duplicate.getKey() + "\t" + entry + "s " + duplicate.getValue());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class UuidBootstrapperTest {
+
+    @Test
+    public void workerIdShouldBeDerivedFromHaServerId() {
+        GraphDatabaseService database = databaseWithServerId("5");
+        try {
+            UuidConfiguration configuration = new UuidBootstrapper().configure(config("generator", "snowflake"), database);
+
+            assertTrue(configuration.hasWorkerId());
+            assertEquals(5, configuration.getWorkerId());
+        } finally {
+            database.shutdown();
+        }
+    }
+
+    @Test
+    public void configuredWorkerIdShouldTakePrecedenceOverHaServerId() {
+        GraphDatabaseService database = databaseWithServerId("5");
+        try {
+            Map<String, String> config = config("generator", "striped");
+            config.put("workerId", "7");
+
+            assertEquals(7, new UuidBootstrapper().configure(config, database).getWorkerId());
+        } finally {
+            database.shutdown();
+        }
+    }
+
+    @Test
+    public void outOfRangeHaServerIdShouldBeRejected() {
+        GraphDatabaseService database = databaseWithServerId("1024");
+        try {
+            new UuidBootstrapper().configure(config("generator", "snowflake"), database);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("ha.server_id"));
+            assertTrue(e.getMessage().contains("workerId"));
+        } finally {
+            database.shutdown();
+        }
+    }
+
+    @Test
+    public void nonNumericHaServerIdShouldBeRejected() {
+        GraphDatabaseService database = databaseWithServerId("first");
+        try {
+            new UuidBootstrapper().configure(config("generator", "striped"), database);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("ha.server_id"));
+        } finally {
+            database.shutdown();
+        }
+    }
+
+    @Test
+    public void haServerIdShouldBeIgnoredByGeneratorsWithoutWorkerId() {
+        GraphDatabaseService database = databaseWithServerId("1024");
+        try {
+            assertFalse(new UuidBootstrapper().configure(config("generator", "eaio"), database).hasWorkerId());
+        } finally {
+            database.shutdown();
+        }
+    }
+
+    @Test
+    public void workerIdShouldNotBeSetOutsideDatabase() {
+        UuidConfiguration configuration = new UuidBootstrapper().configure(config("generator", "striped"), null);
+
+        assertFalse(configuration.hasWorkerId());
+        assertEquals(0, configuration.getWorkerId());
+    }
+
+    private GraphDatabaseService databaseWithServerId(String serverId) {
+        return new TestGraphDatabaseFactory().newImpermanentDatabaseBuilder().setConfig("ha.server_id", serverId).newGraphDatabase();
+    }
+
+    private Map<String, String> config(String key, String value) {
+        Map<String, String> config = new HashMap<>();
+        config.put(key, value);
+        return config;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UuidChangeLogTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("uuid-change-log").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void changesShouldBeReadInOrderFromAllSegments() throws IOException {
+        List<UuidChange> changes = new ArrayList<>();
+        for (int i = 0; i < UuidChangeLog.SEGMENT_SIZE + 10; i++) {
+            changes.add(new UuidChange(UuidChange.Type.ASSIGNED, i, "uuid" + i));
+        }
+
+        try (UuidChangeLog log = new UuidChangeLog(directory, false)) {
+            log.append(changes);
+            log.append(Arrays.asList(new UuidChange(UuidChange.Type.DELETED, 5, "uuid5")));
+
+            assertEquals(UuidChangeLog.SEGMENT_SIZE + 11, log.getLastSequence());
+            assertEquals(2, directory.listFiles().length);
+
+            List<UuidChange> read = log.read(UuidChangeLog.SEGMENT_SIZE - 2, 5);
+            assertEquals(5, read.size());
+            assertEquals(UuidChangeLog.SEGMENT_SIZE - 1, read.get(0).getSequence());
+            assertEquals(UuidChangeLog.SEGMENT_SIZE + 3, read.get(4).getSequence());
+            assertEquals("uuid" + (UuidChangeLog.SEGMENT_SIZE - 2), read.get(0).getUuid());
+
+            read = log.read(UuidChangeLog.SEGMENT_SIZE + 10, 100);
+            assertEquals(1, read.size());
+            assertEquals(UuidChange.Type.DELETED, read.get(0).getType());
+            assertEquals(5, read.get(0).getNodeId());
+
+            assertTrue(log.read(UuidChangeLog.SEGMENT_SIZE + 11, 100).isEmpty());
+        }
+    }
+
+    @Test
+    public void onlyRetainedSegmentsShouldBeKept() throws IOException {
+        List<UuidChange> changes = new ArrayList<>();
+        for (int i = 0; i < 2 * UuidChangeLog.SEGMENT_SIZE + 10; i++) {
+            changes.add(new UuidChange(UuidChange.Type.ASSIGNED, i, "uuid" + i));
+        }
+
+        try (UuidChangeLog log = new UuidChangeLog(directory, false, 2)) {
+            log.append(changes);
+
+            assertEquals(2, directory.listFiles().length);
+
+            List<UuidChange> read = log.read(0, 1);
+            assertEquals(UuidChangeLog.SEGMENT_SIZE + 1, read.get(0).getSequence());
+        }
+
+        try (UuidChangeLog log = new UuidChangeLog(directory, false, 1)) {
+            assertEquals(1, directory.listFiles().length);
+            assertEquals(2 * UuidChangeLog.SEGMENT_SIZE + 10, log.getLastSequence());
+            assertEquals(2 * UuidChangeLog.SEGMENT_SIZE + 1, log.read(0, 1).get(0).getSequence());
+        }
+    }
+
+    @Test
+    public void readerShouldReadAllChangesInOrderAndSkipOldSegments() throws IOException {
+        List<UuidChange> changes = new ArrayList<>();
+        for (int i = 0; i < UuidChangeLog.SEGMENT_SIZE + 10; i++) {
+            changes.add(new UuidChange(UuidChange.Type.ASSIGNED, i, "uuid" + i));
+        }
+
+        try (UuidChangeLog log = new UuidChangeLog(directory, false)) {
+            log.append(changes);
+
+            long count = 0;
+            try (UuidChangeLog.Reader reader = log.readFrom(0)) {
+                UuidChange change;
+                while ((change = reader.next()) != null) {
+                    assertEquals(++count, change.getSequence());
+                }
+            }
+            assertEquals(UuidChangeLog.SEGMENT_SIZE + 10, count);
+
+            File[] segments = directory.listFiles();
+            Arrays.sort(segments);
+            assertTrue(segments[0].setLastModified(1000));
+
+            try (UuidChangeLog.Reader reader = log.readFrom(2000)) {
+                assertEquals(UuidChangeLog.SEGMENT_SIZE + 1, reader.next().getSequence());
+            }
+        }
+    }
+
+    @Test
+    public void logShouldContinueAfterReopeningAndIgnorePartiallyWrittenChanges() throws IOException {
+        try (UuidChangeLog log = new UuidChangeLog(directory, true)) {
+            log.append(Arrays.asList(new UuidChange(UuidChange.Type.ASSIGNED, 1, 100L), new UuidChange(UuidChange.Type.ASSIGNED, 2, 200L)));
+        }
+
+        try (FileOutputStream out = new FileOutputStream(directory.listFiles()[0], true)) {
+            out.write("3\t123\tASSIG".getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (UuidChangeLog log = new UuidChangeLog(directory, true)) {
+            assertEquals(2, log.getLastSequence());
+
+            log.append(Arrays.asList(new UuidChange(UuidChange.Type.DELETED, 1, 100L)));
+
+            List<UuidChange> read = log.read(0, 100);
+            assertEquals(3, read.size());
+            assertEquals(3, read.get(2).getSequence());
+            assertEquals(100L, read.get(2).getUuid());
+        }
+    }
+
+    @Test
+    public void uuidsWithTabsAndLineBreaksShouldNotStallReaders() throws IOException {
+        try (UuidChangeLog log = new UuidChangeLog(directory, false)) {
+            log.append(Arrays.asList(
+                    new UuidChange(UuidChange.Type.ASSIGNED, 1, "a\tb\nc\\d\r"),
+                    new UuidChange(UuidChange.Type.ASSIGNED, 2, "uuid2")));
+        }
+
+        try (FileOutputStream out = new FileOutputStream(directory.listFiles()[0], true)) {
+            out.write("not a change\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (UuidChangeLog log = new UuidChangeLog(directory, false)) {
+            assertEquals(2, log.getLastSequence());
+
+            log.append(Arrays.asList(new UuidChange(UuidChange.Type.DELETED, 2, "uuid2")));
+
+            List<UuidChange> read = log.read(0, 100);
+            assertEquals(3, read.size());
+            assertEquals("a\tb\nc\\d\r", read.get(0).getUuid());
+            assertEquals("uuid2", read.get(1).getUuid());
+            assertEquals(3, read.get(2).getSequence());
+            assertEquals(UuidChange.Type.DELETED, read.get(2).getType());
+        }
+    }
+
+    @Test
+    public void pollShouldReturnEmptyListAfterTimeout() throws IOException {
+        try (UuidChangeLog log = new UuidChangeLog(directory, false)) {
+            assertTrue(log.poll(0, 100, 10).isEmpty());
+        }
+    }
+}
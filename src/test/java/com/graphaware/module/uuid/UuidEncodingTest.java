@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class UuidEncodingTest {
+
+    private final UUID uuid = UUID.fromString("123e4567-e89b-12d3-a456-426655440000");
+
+    @Test
+    public void uuidsShouldBeEncodedInAllEncodings() {
+        assertEquals("123e4567-e89b-12d3-a456-426655440000", UuidEncoding.HEX.encode(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()));
+        assertEquals("Ej5FZ-ibEtOkVkJmVUQAAA", UuidEncoding.BASE64URL.encode(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()));
+        assertEquals("0YQJpYwUwvbaLOwTW34uS8", UuidEncoding.BASE62.encode(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()));
+    }
+
+    @Test
+    public void encodedUuidsShouldBeDecodedBackInAllEncodings() {
+        for (UuidEncoding encoding : UuidEncoding.values()) {
+            for (UUID random : new UUID[]{uuid, UUID.randomUUID(), new UUID(0, 0), new UUID(-1, -1)}) {
+                String encoded = encoding.encode(random.getMostSignificantBits(), random.getLeastSignificantBits());
+                assertEquals(encoding.getLength(), encoded.length());
+                assertTrue(encoding.isValid(encoded));
+
+                long[] decoded = encoding.decode(encoded);
+                assertEquals(random.getMostSignificantBits(), decoded[0]);
+                assertEquals(random.getLeastSignificantBits(), decoded[1]);
+            }
+        }
+    }
+
+    @Test
+    public void invalidUuidsShouldBeRecognized() {
+        assertFalse(UuidEncoding.HEX.isValid("123e4567-e89b-12d3-a456-42665544000x"));
+        assertFalse(UuidEncoding.HEX.isValid("123e4567e89b-12d3-a456-4266554400000"));
+        assertFalse(UuidEncoding.BASE64URL.isValid("Ej5FZ-ibEtOkVkJmVUQAA"));
+        assertFalse(UuidEncoding.BASE64URL.isValid("Ej5FZ-ibEtOkVkJmVUQAAB"));
+        assertFalse(UuidEncoding.BASE62.isValid("0YQJpYwUwvbaLOwTW34uS-"));
+        assertFalse(UuidEncoding.BASE62.isValid("zzzzzzzzzzzzzzzzzzzzzz"));
+        assertFalse(UuidEncoding.BASE62.isValid(null));
+    }
+
+    @Test
+    public void canonicalUuidsShouldBeNormalizedToConfiguredEncoding() {
+        assertEquals("0YQJpYwUwvbaLOwTW34uS8", new UuidFormat(UuidEncoding.BASE62).normalize("123e4567-e89b-12d3-a456-426655440000"));
+        assertEquals("0YQJpYwUwvbaLOwTW34uS8", new UuidFormat(UuidEncoding.BASE62).normalize("0YQJpYwUwvbaLOwTW34uS8"));
+        assertEquals("Ej5FZ-ibEtOkVkJmVUQAAA", new UuidFormat(UuidEncoding.BASE64URL).normalize("123E4567-E89B-12D3-A456-426655440000"));
+        assertEquals("123e4567-e89b-12d3-a456-426655440000", new UuidFormat(UuidEncoding.HEX).normalize("123E4567-E89B-12D3-A456-426655440000"));
+    }
+
+    @Test
+    public void generatorShouldProduceUuidsInConfiguredEncoding() {
+        for (UuidEncoding encoding : UuidEncoding.values()) {
+            assertTrue(encoding.isValid(new EaioUuidGenerator(encoding).generateUuid()));
+        }
+    }
+}
@@ -17,21 +17,38 @@ package com.graphaware.module.uuid;
 
 import org.eclipse.jetty.util.ConcurrentHashSet;
 import org.junit.Test;
+import org.neo4j.graphdb.DynamicLabel;
+import org.neo4j.graphdb.Label;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static junit.framework.Assert.assertFalse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class UuidGeneratorTest {
 
+    private static final Logger LOG = LoggerFactory.getLogger(UuidGeneratorTest.class);
+
+    private static final int THROUGHPUT_UUIDS = 256_000;
+
     @Test
     public void shouldBeNoDuplicatesWithConcurrentAccess() throws InterruptedException {
         final Set<String> uuids = new ConcurrentHashSet<>();
-        final UuidGenerator generator = new EaioUuidGenerator();
+        final UuidGenerator<String> generator = new EaioUuidGenerator();
         final AtomicBoolean failure = new AtomicBoolean(false);
         ExecutorService executor = Executors.newFixedThreadPool(100);
         for (int i = 0; i < 1000; i++) {
@@ -51,4 +68,208 @@ public class UuidGeneratorTest {
 
         assertFalse("Duplicate UUID Generated", failure.get());
     }
+
+    @Test
+    public void shouldBeNoDuplicateSnowflakeIdsWithConcurrentAccess() throws InterruptedException {
+        final Set<Long> ids = new ConcurrentHashSet<>();
+        final UuidGenerator<Long> generator = new SnowflakeUuidGenerator(5);
+        final AtomicBoolean failure = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(100);
+        for (int i = 0; i < 100; i++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    long previous = 0;
+                    for (int j = 0; j < 1000; j++) {
+                        long id = generator.generateUuid();
+                        if (!ids.add(id) || id <= previous) {
+                            failure.set(true);
+                        }
+                        previous = id;
+                    }
+                }
+            });
+
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        assertFalse("Duplicate or out-of-order ID Generated", failure.get());
+    }
+
+    @Test
+    public void snowflakeIdsShouldContainTimestampAndWorkerId() {
+        long before = System.currentTimeMillis();
+        long id = new SnowflakeUuidGenerator(1023).generateUuid();
+        long after = System.currentTimeMillis();
+
+        assertTrue(SnowflakeUuidGenerator.getTimestamp(id) >= before);
+        assertTrue(SnowflakeUuidGenerator.getTimestamp(id) <= after);
+        assertEquals(1023, (id >>> 12) & 1023);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void snowflakeWorkerIdShouldBeValidated() {
+        new SnowflakeUuidGenerator(1024);
+    }
+
+    @Test
+    public void shouldBeNoDuplicateStripedUuidsWithConcurrentAccess() throws InterruptedException {
+        final Set<String> uuids = new ConcurrentHashSet<>();
+        final UuidGenerator<String> generator = new StripedUuidGenerator(UuidEncoding.HEX);
+        final AtomicBoolean failure = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(100);
+        for (int i = 0; i < 100; i++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        if (!uuids.add(generator.generateUuid())) {
+                            failure.set(true);
+                        }
+                    }
+                }
+            });
+
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        assertFalse("Duplicate UUID Generated", failure.get());
+    }
+
+    @Test
+    public void stripedUuidsShouldCarryWorkerIdInNodeField() {
+        java.util.UUID first = java.util.UUID.fromString(new StripedUuidGenerator(UuidEncoding.HEX, 1).generateUuid());
+        java.util.UUID second = java.util.UUID.fromString(new StripedUuidGenerator(UuidEncoding.HEX, 1023).generateUuid());
+
+        assertEquals(1, first.node() & 1023);
+        assertEquals(1023, second.node() & 1023);
+        assertEquals(0x010000000000L, first.node() & 0x010000000000L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void stripedWorkerIdShouldBeValidated() {
+        new StripedUuidGenerator(UuidEncoding.HEX, -1);
+    }
+
+    @Test
+    public void stripedUuidsShouldBeValidTimeBasedUuids() {
+        long before = System.currentTimeMillis();
+        java.util.UUID uuid = java.util.UUID.fromString(new StripedUuidGenerator(UuidEncoding.HEX).generateUuid());
+        long after = System.currentTimeMillis();
+
+        assertEquals(1, uuid.version());
+        assertEquals(2, uuid.variant());
+
+        long millis = (uuid.timestamp() - StripedUuidGenerator.UUID_EPOCH_OFFSET) / 10_000;
+        assertTrue(millis >= before);
+        assertTrue(millis <= after);
+    }
+
+    @Test
+    public void stripedGeneratorShouldScaleWithThreads() throws InterruptedException {
+        for (int threads = 1; threads <= 128; threads *= 2) {
+            long eaio = measureThroughput(new EaioUuidGenerator(), threads);
+            long striped = measureThroughput(new StripedUuidGenerator(UuidEncoding.HEX), threads);
+
+            LOG.info("{} threads: eaio {} UUIDs/s, striped {} UUIDs/s", threads, eaio, striped);
+        }
+    }
+
+    private long measureThroughput(final UuidGenerator<String> generator, int threads) throws InterruptedException {
+        final int perThread = THROUGHPUT_UUIDS / threads;
+        final Set<String> uuids = new ConcurrentHashSet<>();
+        final AtomicBoolean failure = new AtomicBoolean(false);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch generated = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int i = 0; i < threads; i++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    String[] batch = new String[perThread];
+                    try {
+                        start.await();
+                        for (int j = 0; j < perThread; j++) {
+                            batch[j] = generator.generateUuid();
+                        }
+                    } catch (InterruptedException e) {
+                        failure.set(true);
+                    } finally {
+                        generated.countDown();
+                    }
+                    for (String uuid : batch) {
+                        if (!uuids.add(uuid)) {
+                            failure.set(true);
+                        }
+                    }
+                }
+            });
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        generated.await();
+        long durationNanos = System.nanoTime() - startTime;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        assertFalse("Duplicate UUID Generated with " + threads + " threads", failure.get());
+        assertEquals(perThread * threads, uuids.size());
+
+        return perThread * threads * 1_000_000_000L / Math.max(1, durationNanos);
+    }
+
+    @Test
+    public void nameBasedUuidsShouldBeVersion5UuidsOfName() {
+        NameBasedUuidGenerator generator = new NameBasedUuidGenerator(UuidEncoding.HEX, Arrays.asList("externalId"), NameBasedUuidGenerator.DEFAULT_NAMESPACE);
+
+        assertEquals("a487c18a-ea4d-5147-bf60-82d50efade01", generator.generateUuid("Person:123"));
+        assertEquals(generator.generateUuid("Person:123"), generator.generateUuid("Person:123"));
+        assertEquals("97d84a1f-193a-56e5-b85a-65aa11f2100c", generator.generateUuid("Person:\u00e9x"));
+    }
+
+    @Test
+    public void nameBasedUuidsOfDifferentKeysShouldNotCollide() {
+        NameBasedUuidGenerator generator = new NameBasedUuidGenerator(UuidEncoding.HEX, Arrays.asList("a", "b"), NameBasedUuidGenerator.DEFAULT_NAMESPACE);
+        List<Label> person = Arrays.asList(DynamicLabel.label("Person"));
+
+        assertEquals(generator.generateUuid("Person:123:abc"), generator.generateUuid(person, keys("123", "abc")));
+        assertEquals(generator.generateUuid("Person:\\i123:\\a\\i1,x\\,y"), generator.generateUuid(person, keys(123L, new Object[]{1, "x,y"})));
+
+        Set<String> uuids = new HashSet<>(Arrays.asList(
+                generator.generateUuid(person, keys("a:b", "c")),
+                generator.generateUuid(person, keys("a", "b:c")),
+                generator.generateUuid(person, keys("x", new String[]{"x,y"})),
+                generator.generateUuid(person, keys("x", new String[]{"x", "y"})),
+                generator.generateUuid(person, keys("x", "x,y")),
+                generator.generateUuid(person, keys("x", "1")),
+                generator.generateUuid(person, keys("x", 1L)),
+                generator.generateUuid(person, keys("x", 1.0)),
+                generator.generateUuid(person, keys("x", "\\i1")),
+                generator.generateUuid(person, keys("x", true)),
+                generator.generateUuid(person, keys("x", "true")),
+                generator.generateUuid(Arrays.asList(DynamicLabel.label("A,B")), keys("x", "y")),
+                generator.generateUuid(Arrays.asList(DynamicLabel.label("A"), DynamicLabel.label("B")), keys("x", "y")),
+                generator.generateUuid(Arrays.asList(DynamicLabel.label("A:x")), keys("y", "z")),
+                generator.generateUuid(Arrays.asList(DynamicLabel.label("A")), keys("x:y", "z"))
+        ));
+
+        assertEquals(15, uuids.size());
+        assertEquals(generator.generateUuid(person, keys("x", 1)), generator.generateUuid(person, keys("x", 1L)));
+    }
+
+    private Map<String, Object> keys(Object a, Object b) {
+        Map<String, Object> keys = new HashMap<>();
+        keys.put("a", a);
+        keys.put("b", b);
+        return keys;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nameBasedGeneratorShouldRequireKeys() {
+        new NameBasedUuidGenerator(UuidEncoding.HEX, Collections.<String>emptyList(), NameBasedUuidGenerator.DEFAULT_NAMESPACE);
+    }
 }
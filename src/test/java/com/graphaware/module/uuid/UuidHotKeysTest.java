@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class UuidHotKeysTest {
+
+    @Test
+    public void mostLookedUpUuidsShouldBeReportedHottestFirst() {
+        UuidHotKeys hotKeys = new UuidHotKeys(1);
+
+        for (int i = 0; i < 1000; i++) {
+            hotKeys.lookedUp("hot");
+            if (i % 2 == 0) {
+                hotKeys.lookedUp("warm");
+            }
+            hotKeys.lookedUp("cold" + i);
+        }
+
+        Map<Object, Long> top = hotKeys.getTop(2);
+        assertEquals(Arrays.<Object>asList("hot", "warm"), new ArrayList<>(top.keySet()));
+        assertTrue(top.get("hot") >= 1000);
+        assertTrue(top.get("warm") >= 500);
+        assertEquals(2500, hotKeys.getSampledLookups());
+    }
+
+    @Test
+    public void countsShouldBeScaledBySampleRate() {
+        UuidHotKeys hotKeys = new UuidHotKeys(10);
+
+        for (int i = 0; i < 10_000; i++) {
+            hotKeys.lookedUp("hot");
+        }
+
+        long sampled = hotKeys.getSampledLookups();
+        assertTrue(sampled > 500 && sampled < 1500);
+        assertEquals(sampled * 10, (long) hotKeys.getTop(1).get("hot"));
+    }
+
+    @Test
+    public void countDistributionShouldBucketCountsByPowersOfTwo() {
+        UuidHotKeys hotKeys = new UuidHotKeys(1);
+
+        for (int i = 0; i < 5; i++) {
+            hotKeys.lookedUp("hot");
+        }
+        hotKeys.lookedUp("cold");
+
+        List<String> distribution = Arrays.asList(hotKeys.getCountDistribution());
+        assertTrue(distribution.contains("4-7=1"));
+        assertTrue(distribution.contains("1=1"));
+    }
+}
@@ -28,6 +28,21 @@ import org.neo4j.cypher.javacompat.ExecutionEngine;
 import org.neo4j.graphdb.*;
 import org.neo4j.test.TestGraphDatabaseFactory;
 import org.neo4j.tooling.GlobalGraphOperations;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.neo4j.unsafe.batchinsert.BatchInserters;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -38,6 +53,7 @@ public class UuidModuleEmbeddedProgrammaticTest {
     private final Label testLabel = DynamicLabel.label("test");
     private final Label personLabel = DynamicLabel.label("Person");
     private UuidConfiguration uuidConfiguration;
+    private UuidModule module;
 
     @Before
     public void setUp() {
@@ -221,6 +237,121 @@ public class UuidModuleEmbeddedProgrammaticTest {
         //Exception should be thrown
     }
 
+    @Test
+    public void shouldBeAbleToChangeAndDeleteTheUuidInAssignOnlyMode() {
+        Node node;
+
+        //Given
+        registerModule(UuidConfiguration.defaultConfiguration().withProtectionMode(UuidProtectionMode.ASSIGN_ONLY));
+
+        try (Transaction tx = database.beginTx()) {
+            node = database.createNode();
+            tx.success();
+        }
+
+        //When
+        String assignedUuid;
+        try (Transaction tx = database.beginTx()) {
+            assignedUuid = (String) node.getProperty(uuidConfiguration.getUuidProperty());
+            node.setProperty(uuidConfiguration.getUuidProperty(), "aNewUuid");
+            tx.success();
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            node.removeProperty(uuidConfiguration.getUuidProperty());
+            tx.success();
+        }
+
+        //Then
+        try (Transaction tx = database.beginTx()) {
+            assertFalse(node.hasProperty(uuidConfiguration.getUuidProperty()));
+            tx.success();
+        }
+
+        //the node is still indexed by the UUID it was assigned, until it is deleted
+        assertEquals(node.getId(), module.getNodeId(database, assignedUuid));
+
+        try (Transaction tx = database.beginTx()) {
+            node.delete();
+            tx.success();
+        }
+
+        try {
+            module.getNodeId(database, assignedUuid);
+            fail();
+        } catch (NotFoundException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void shouldBeAbleToChangeButNotDeleteTheUuidInDenyRemovalOnlyMode() {
+        Node node;
+        String newUuid = "a4a2b6c0-3d51-11e4-916c-0800200c9a66";
+
+        //Given
+        registerModule(UuidConfiguration.defaultConfiguration().withProtectionMode(UuidProtectionMode.DENY_REMOVAL_ONLY));
+
+        try (Transaction tx = database.beginTx()) {
+            node = database.createNode();
+            tx.success();
+        }
+
+        String oldUuid;
+        try (Transaction tx = database.beginTx()) {
+            oldUuid = (String) node.getProperty(uuidConfiguration.getUuidProperty());
+            node.setProperty(uuidConfiguration.getUuidProperty(), newUuid);
+            tx.success();
+        }
+
+        assertEquals(node.getId(), module.getNodeId(database, newUuid));
+        try {
+            module.getNodeId(database, oldUuid);
+            fail();
+        } catch (NotFoundException e) {
+            //expected
+        }
+
+        //When
+        try {
+            try (Transaction tx = database.beginTx()) {
+                node.removeProperty(uuidConfiguration.getUuidProperty());
+                tx.success();
+            }
+            fail("Removing the UUID should have been rejected");
+        } catch (TransactionFailureException e) {
+            //Then
+            //expected
+        }
+    }
+
+    @Test(expected = TransactionFailureException.class)
+    public void shouldNotBeAbleToChangeTheUuidToOneInUseInDenyRemovalOnlyMode() {
+        Node node;
+
+        //Given
+        registerModule(UuidConfiguration.defaultConfiguration().withProtectionMode(UuidProtectionMode.DENY_REMOVAL_ONLY));
+
+        try (Transaction tx = database.beginTx()) {
+            node = database.createNode();
+            database.createNode();
+            tx.success();
+        }
+
+        //When
+        try (Transaction tx = database.beginTx()) {
+            for (Node other : GlobalGraphOperations.at(database).getAllNodes()) {
+                if (other.getId() != node.getId()) {
+                    node.setProperty(uuidConfiguration.getUuidProperty(), other.getProperty(uuidConfiguration.getUuidProperty()));
+                }
+            }
+            tx.success();
+        }
+
+        //Then
+        //Exception should be thrown
+    }
+
 
     @Test
     public void uuidShouldBeAssignedToNodeWithLabelSpecifiedInConfig() {
@@ -994,12 +1125,789 @@ public class UuidModuleEmbeddedProgrammaticTest {
         }
     }
 
+    @Test
+    public void uuidsShouldBeResolvedFromNodeIdsInBulk() {
+        //Given
+        registerModule(UuidConfiguration.defaultConfiguration().withUuidCacheSize(16));
+
+        long first, second, third;
+        try (Transaction tx = database.beginTx()) {
+            first = database.createNode().getId();
+            second = database.createNode().getId();
+            third = database.createNode().getId();
+            tx.success();
+        }
+
+        //When
+        Map<Long, String> uuids = module.getNodeUuidResolver().getUuids(database, third, first, 12345L, second, first);
+        Map<Long, String> cached = module.getNodeUuidResolver().getUuids(database, first, second, third);
+
+        //Then
+        assertEquals(Arrays.asList(third, first, second), new ArrayList<>(uuids.keySet()));
+        try (Transaction tx = database.beginTx()) {
+            for (long nodeId : Arrays.asList(first, second, third)) {
+                assertEquals(database.getNodeById(nodeId).getProperty("uuid"), uuids.get(nodeId));
+                assertEquals(uuids.get(nodeId), cached.get(nodeId));
+            }
+            tx.success();
+        }
+    }
+
+    @Test
+    public void deletedNodesShouldNotBeResolvedFromCache() {
+        //Given
+        registerModule(UuidConfiguration.defaultConfiguration().withUuidCacheSize(16));
+
+        long nodeId;
+        try (Transaction tx = database.beginTx()) {
+            nodeId = database.createNode().getId();
+            tx.success();
+        }
+
+        assertNotNull(module.getNodeUuidResolver().getUuid(database, nodeId));
+
+        //When
+        try (Transaction tx = database.beginTx()) {
+            database.getNodeById(nodeId).delete();
+            tx.success();
+        }
+
+        //Then
+        assertNull(module.getNodeUuidResolver().getUuid(database, nodeId));
+    }
+
+    @Test
+    public void nodeCreatedWithUnusedUuidShouldKeepIt() {
+        //Given
+        registerModuleWithNoLabels();
+
+        //When
+        long nodeId;
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode();
+            node.setProperty(uuidConfiguration.getUuidProperty(), "aPresetUuid");
+            nodeId = node.getId();
+            tx.success();
+        }
+
+        //Then
+        try (Transaction tx = database.beginTx()) {
+            assertEquals("aPresetUuid", database.getNodeById(nodeId).getProperty(uuidConfiguration.getUuidProperty()));
+            tx.success();
+        }
+    }
+
+    @Test(expected = TransactionFailureException.class)
+    public void shouldNotBeAbleToCreateNodeWithUuidInUse() {
+        //Given
+        registerModuleWithNoLabels();
+
+        long nodeId;
+        try (Transaction tx = database.beginTx()) {
+            nodeId = database.createNode().getId();
+            tx.success();
+        }
+
+        Object uuid;
+        try (Transaction tx = database.beginTx()) {
+            uuid = database.getNodeById(nodeId).getProperty(uuidConfiguration.getUuidProperty());
+            tx.success();
+        }
+
+        //When
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode();
+            node.setProperty(uuidConfiguration.getUuidProperty(), uuid);
+            tx.success();
+        }
+
+        //Exception should be thrown
+    }
+
+    @Test(expected = TransactionFailureException.class)
+    public void shouldNotBeAbleToCreateTwoNodesWithSameUuidInOneTransaction() {
+        //Given
+        registerModuleWithNoLabels();
+
+        //When
+        try (Transaction tx = database.beginTx()) {
+            database.createNode().setProperty(uuidConfiguration.getUuidProperty(), "aPresetUuid");
+            database.createNode().setProperty(uuidConfiguration.getUuidProperty(), "aPresetUuid");
+            tx.success();
+        }
+
+        //Exception should be thrown
+    }
+
+    @Test
+    public void auditShouldReportMalformedAndDuplicateUuids() {
+        //Given
+        long first, second, malformed;
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode();
+            node.setProperty("uuid", "00000000-0000-0000-0000-000000000001");
+            first = node.getId();
+            node = database.createNode();
+            node.setProperty("uuid", "00000000-0000-0000-0000-000000000001");
+            second = node.getId();
+            node = database.createNode();
+            node.setProperty("uuid", "notAUuid");
+            malformed = node.getId();
+            database.createNode();
+            tx.success();
+        }
+
+        registerModuleWithNoLabels();
+
+        //When
+        UuidAuditReport report = module.audit(database);
+
+        //Then
+        assertFalse(report.isClean());
+        assertEquals(4, report.getIncludedNodes());
+        assertEquals(0, report.getMissingUuids());
+        assertEquals(1, report.getMalformedUuids());
+        assertEquals("notAUuid", report.getNodesWithMalformedUuid().get(malformed));
+        assertEquals(1, report.getDuplicateUuids());
+        assertEquals(new HashSet<>(Arrays.asList(first, second)), new HashSet<>(report.getNodesWithDuplicateUuid().get("00000000-0000-0000-0000-000000000001")));
+    }
+
+    @Test
+    public void repairShouldReassignMalformedUuidsAndLogMappings() throws Exception {
+        //Given
+        long nodeId;
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode();
+            node.setProperty("uuid", "notAUuid");
+            nodeId = node.getId();
+            tx.success();
+        }
+
+        registerModuleWithNoLabels();
+
+        File mappingFile = File.createTempFile("uuid-repair", ".tsv");
+        mappingFile.deleteOnExit();
+
+        //When
+        UuidRepair repair = module.startRepair(database, 10, 0, mappingFile);
+        for (int i = 0; i < 100 && !repair.isFinished(); i++) {
+            Thread.sleep(100);
+        }
+
+        //Then
+        assertTrue(repair.isFinished());
+        assertEquals(1, repair.getRepairedNodes());
+
+        String newUuid;
+        try (Transaction tx = database.beginTx()) {
+            newUuid = (String) database.getNodeById(nodeId).getProperty("uuid");
+            tx.success();
+        }
+
+        assertTrue(UuidEncoding.HEX.isValid(newUuid));
+        try (BufferedReader reader = new BufferedReader(new FileReader(mappingFile))) {
+            assertEquals(nodeId + "\tnotAUuid\t" + newUuid, reader.readLine());
+        }
+    }
+
+    @Test
+    public void metricsShouldBeRecordedForEveryTransaction() {
+        //Given
+        registerModuleWithNoLabels();
+
+        long nodeId;
+        try (Transaction tx = database.beginTx()) {
+            nodeId = database.createNode().getId();
+            database.createNode();
+            tx.success();
+        }
+
+        //When
+        try (Transaction tx = database.beginTx()) {
+            database.getNodeById(nodeId).setProperty(uuidConfiguration.getUuidProperty(), "aNewUuid");
+            tx.success();
+        } catch (TransactionFailureException e) {
+            //expected
+        }
+
+        //Then
+        assertEquals(2, module.getMetrics().getTransactions());
+        assertEquals(1, module.getMetrics().getRollbacks());
+        assertEquals(2, module.getMetrics().getAssignedNodes());
+        assertEquals(1, module.getMetrics().getValidatedNodes());
+        assertEquals(2, module.getMetrics().getAssignedNodesPerTransactionP99());
+    }
+
+    @Test
+    public void snowflakeIdsShouldBeAssignedAsLongs() {
+        //Given
+        registerModule(UuidConfiguration.defaultConfiguration().withGeneratorType(UuidGeneratorType.SNOWFLAKE).withWorkerId(3));
+
+        //When
+        long nodeId;
+        try (Transaction tx = database.beginTx()) {
+            nodeId = database.createNode().getId();
+            tx.success();
+        }
+
+        //Then
+        try (Transaction tx = database.beginTx()) {
+            assertTrue(database.getNodeById(nodeId).getProperty("uuid") instanceof Long);
+            tx.success();
+        }
+    }
+
+    @Test
+    public void nameBasedUuidsShouldBeDerivedFromLabelsAndKeys() {
+        //Given
+        registerModule(UuidConfiguration.defaultConfiguration()
+                .withGeneratorType(UuidGeneratorType.NAME_BASED)
+                .withNameBasedKeys(Arrays.asList("externalId")));
+
+        //When
+        long nodeId, nodeWithoutKeyId;
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode(DynamicLabel.label("Person"));
+            node.setProperty("externalId", "123");
+            nodeId = node.getId();
+            nodeWithoutKeyId = database.createNode(DynamicLabel.label("Person")).getId();
+            tx.success();
+        }
+
+        //Then
+        try (Transaction tx = database.beginTx()) {
+            assertEquals("a487c18a-ea4d-5147-bf60-82d50efade01", database.getNodeById(nodeId).getProperty("uuid"));
+            assertEquals(4, java.util.UUID.fromString((String) database.getNodeById(nodeWithoutKeyId).getProperty("uuid")).version());
+            tx.success();
+        }
+    }
+
+    @Test(expected = TransactionFailureException.class)
+    public void shouldNotBeAbleToCreateTwoNodesWithSameNameBasedUuid() {
+        //Given
+        registerModule(UuidConfiguration.defaultConfiguration()
+                .withGeneratorType(UuidGeneratorType.NAME_BASED)
+                .withNameBasedKeys(Arrays.asList("externalId")));
+
+        try (Transaction tx = database.beginTx()) {
+            database.createNode(DynamicLabel.label("Person")).setProperty("externalId", 123);
+            tx.success();
+        }
+
+        //When
+        try (Transaction tx = database.beginTx()) {
+            database.createNode(DynamicLabel.label("Person")).setProperty("externalId", 123);
+            tx.success();
+        }
+
+        //Exception should be thrown
+    }
+
+    @Test
+    public void upsertShouldCreateNodesWithNewUuidsAndUpdateExistingOnes() {
+        //Given
+        registerModuleWithNoLabels();
+
+        long existingId;
+        Object existingUuid;
+        try (Transaction tx = database.beginTx()) {
+            Node existing = database.createNode();
+            existing.setProperty("name", "Old");
+            existingId = existing.getId();
+            tx.success();
+        }
+        try (Transaction tx = database.beginTx()) {
+            existingUuid = database.getNodeById(existingId).getProperty("uuid");
+            tx.success();
+        }
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("name", "New");
+        properties.put("tags", Arrays.<Object>asList("a", "b"));
+
+        //When
+        UuidUpsertResult result = module.upsert(database, Arrays.asList(
+                new UuidUpsertRecord((String) existingUuid, Arrays.asList("Person"), properties),
+                new UuidUpsertRecord("123e4567-e89b-12d3-a456-426655440000", Arrays.asList("Company"), properties),
+                new UuidUpsertRecord("123E4567-E89B-12D3-A456-426655440000", Arrays.asList("Customer"), properties)
+        ), 2);
+
+        //Then
+        assertEquals(1, result.getCreatedNodes());
+        assertEquals(2, result.getUpdatedNodes());
+        assertEquals(existingId, (long) result.getNodeIds().get(0));
+        assertEquals(result.getNodeIds().get(1), result.getNodeIds().get(2));
+
+        try (Transaction tx = database.beginTx()) {
+            Node existing = database.getNodeById(existingId);
+            assertEquals("New", existing.getProperty("name"));
+            assertEquals(existingUuid, existing.getProperty("uuid"));
+            assertTrue(existing.hasLabel(DynamicLabel.label("Person")));
+            assertArrayEquals(new String[]{"a", "b"}, (String[]) existing.getProperty("tags"));
+
+            Node created = database.getNodeById(result.getNodeIds().get(1));
+            assertEquals("123e4567-e89b-12d3-a456-426655440000", created.getProperty("uuid"));
+            assertTrue(created.hasLabel(DynamicLabel.label("Company")));
+            assertTrue(created.hasLabel(DynamicLabel.label("Customer")));
+
+            assertEquals(2, IterableUtils.count(GlobalGraphOperations.at(database).getAllNodes()));
+            tx.success();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void upsertShouldRejectInvalidUuids() {
+        registerModuleWithNoLabels();
+
+        module.upsert(database, Arrays.asList(new UuidUpsertRecord("not-a-uuid", null, null)), 1000);
+    }
+
+    @Test
+    public void upsertShouldRejectNodesExcludedByInclusionPolicy() {
+        //Given
+        registerModuleWithLabels();
+
+        //When
+        try {
+            module.upsert(database, Arrays.asList(new UuidUpsertRecord("123e4567-e89b-12d3-a456-426655440000", Arrays.asList("Dog"), null)), 1000);
+            fail();
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+
+        //Then
+        UuidUpsertResult result = module.upsert(database, Arrays.asList(new UuidUpsertRecord("123e4567-e89b-12d3-a456-426655440000", Arrays.asList("Person"), null)), 1000);
+        assertEquals(1, result.getCreatedNodes());
+        assertEquals(result.getNodeIds().get(0).longValue(), module.getNodeId(database, "123e4567-e89b-12d3-a456-426655440000"));
+    }
+
+    @Test
+    public void assignedAndDeletedUuidsShouldBePublishedToChangeLog() throws IOException {
+        //Given
+        File directory = Files.createTempDirectory("uuid-changes").toFile();
+        registerModule(UuidConfiguration.defaultConfiguration().withChangeLogDirectory(directory.getAbsolutePath()));
+
+        //When
+        long nodeId;
+        try (Transaction tx = database.beginTx()) {
+            nodeId = database.createNode().getId();
+            tx.success();
+        }
+
+        Object uuid;
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.getNodeById(nodeId);
+            uuid = node.getProperty("uuid");
+            node.delete();
+            tx.success();
+        }
+
+        //Then
+        List<UuidChange> changes = module.getChanges(0, 100, 0);
+        assertEquals(2, changes.size());
+        assertEquals(UuidChange.Type.ASSIGNED, changes.get(0).getType());
+        assertEquals(UuidChange.Type.DELETED, changes.get(1).getType());
+        assertEquals(uuid, changes.get(0).getUuid());
+        assertEquals(uuid, changes.get(1).getUuid());
+        assertEquals(nodeId, changes.get(1).getNodeId());
+
+        assertEquals(1, module.getChanges(1, 100, 0).size());
+        assertTrue(module.getChanges(2, 100, 0).isEmpty());
+    }
+
+    @Test
+    public void deletedUuidsShouldBeToldApartFromUnknownOnes() {
+        //Given
+        registerModule(UuidConfiguration.defaultConfiguration().withTombstoneRetentionSeconds(3600));
+
+        long nodeId, deletedNodeId;
+        try (Transaction tx = database.beginTx()) {
+            nodeId = database.createNode().getId();
+            deletedNodeId = database.createNode().getId();
+            tx.success();
+        }
+
+        String uuid, deletedUuid;
+        try (Transaction tx = database.beginTx()) {
+            uuid = (String) database.getNodeById(nodeId).getProperty("uuid");
+            Node deleted = database.getNodeById(deletedNodeId);
+            deletedUuid = (String) deleted.getProperty("uuid");
+            deleted.delete();
+            tx.success();
+        }
+
+        //Then
+        assertEquals(nodeId, module.getNodeId(database, uuid));
+
+        try {
+            module.getNodeId(database, deletedUuid);
+            fail();
+        } catch (UuidDeletedException e) {
+            //expected
+        }
+
+        try {
+            module.getNodeId(database, "123e4567-e89b-12d3-a456-426655440000");
+            fail();
+        } catch (NotFoundException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void nodesShouldBeFoundByTimeRangeInCreationOrder() throws InterruptedException {
+        //Given
+        registerModule(UuidConfiguration.defaultConfiguration().withGeneratorType(UuidGeneratorType.STRIPED).withTimeRangeIndex(true));
+
+        long before = System.currentTimeMillis();
+        List<Long> nodeIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            try (Transaction tx = database.beginTx()) {
+                nodeIds.add(database.createNode().getId());
+                tx.success();
+            }
+            Thread.sleep(2);
+        }
+        long after = System.currentTimeMillis() + 1;
+
+        //When
+        UuidTimeRangePage first = module.findByTimeRange(database, before, after, null, 2);
+        UuidTimeRangePage second = module.findByTimeRange(database, before, after, first.getNextCursor(), 2);
+
+        //Then
+        assertEquals(2, first.getNodes().size());
+        assertEquals((long) nodeIds.get(0), first.getNodes().get(0).getNodeId());
+        assertEquals((long) nodeIds.get(1), first.getNodes().get(1).getNodeId());
+        assertNotNull(first.getNextCursor());
+
+        assertEquals(1, second.getNodes().size());
+        assertEquals((long) nodeIds.get(2), second.getNodes().get(0).getNodeId());
+        assertNull(second.getNextCursor());
+
+        assertTrue(module.findByTimeRange(database, 0, before, null, 10).getNodes().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void timeRangeLimitShouldBeAtLeastOne() {
+        registerModule(UuidConfiguration.defaultConfiguration().withGeneratorType(UuidGeneratorType.STRIPED).withTimeRangeIndex(true));
+
+        module.findByTimeRange(database, 0, System.currentTimeMillis(), null, 0);
+    }
+
+    @Test
+    public void nodesShouldBeFoundByUuidPrefix() {
+        //Given
+        registerModuleWithNoLabels();
+
+        try (Transaction tx = database.beginTx()) {
+            database.createNode().setProperty("uuid", "abcd1111-e89b-12d3-a456-426655440000");
+            database.createNode().setProperty("uuid", "abcd2222-e89b-12d3-a456-426655440000");
+            database.createNode().setProperty("uuid", "ef001111-e89b-12d3-a456-426655440000");
+            tx.success();
+        }
+
+        //When
+        UuidPrefixMatches ambiguous = module.findByPrefix(database, "ABCD", 10);
+        UuidPrefixMatches unique = module.findByPrefix(database, "abcd2", 10);
+        UuidPrefixMatches truncated = module.findByPrefix(database, "abcd", 1);
+        UuidPrefixMatches none = module.findByPrefix(database, "0000", 10);
+
+        //Then
+        assertEquals(2, ambiguous.getMatches().size());
+        assertTrue(ambiguous.isAmbiguous());
+        assertFalse(ambiguous.isTruncated());
+        assertEquals("abcd1111-e89b-12d3-a456-426655440000", ambiguous.getMatches().get(0).getUuid());
+
+        assertEquals(1, unique.getMatches().size());
+        assertFalse(unique.isAmbiguous());
+        assertEquals("abcd2222-e89b-12d3-a456-426655440000", unique.getMatches().get(0).getUuid());
+
+        assertEquals(1, truncated.getMatches().size());
+        assertTrue(truncated.isTruncated());
+        assertTrue(truncated.isAmbiguous());
+
+        assertTrue(none.getMatches().isEmpty());
+        assertFalse(none.isAmbiguous());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void prefixLimitShouldBeAtLeastOne() {
+        registerModuleWithNoLabels();
+
+        module.findByPrefix(database, "abcd", 0);
+    }
+
+    @Test
+    public void uniqueConstraintShouldBeCreatedForConfiguredLabels() {
+        //Given
+        registerModule(UuidConfiguration.defaultConfiguration()
+                .withSchemaIndexLabels(Arrays.asList("Person"))
+                .withUniqueConstraint(true));
+
+        //When
+        long nodeId;
+        try (Transaction tx = database.beginTx()) {
+            nodeId = database.createNode(personLabel).getId();
+            tx.success();
+        }
+
+        //Then
+        String uuid;
+        try (Transaction tx = database.beginTx()) {
+            assertEquals(1, IterableUtils.count(database.schema().getConstraints(personLabel)));
+            uuid = (String) database.getNodeById(nodeId).getProperty("uuid");
+            assertEquals(nodeId, IterableUtils.getSingle(database.findNodesByLabelAndProperty(personLabel, "uuid", uuid)).getId());
+            tx.success();
+        }
+
+        assertEquals(nodeId, module.getNodeId(database, uuid));
+    }
+
+    @Test
+    public void existingUuidsShouldBeIndexedOnInitialization() {
+        //Given
+        long nodeId;
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode();
+            node.setProperty("uuid", "123e4567-e89b-12d3-a456-426655440000");
+            nodeId = node.getId();
+            tx.success();
+        }
+
+        //When
+        registerModuleWithNoLabels();
+
+        //Then
+        Map<String, Long> nodeIds = module.getNodeIds(database, "123E4567-E89B-12D3-A456-426655440000", "123e4567-e89b-12d3-a456-426655440001", "nonsense");
+        assertEquals(1, nodeIds.size());
+        assertEquals(nodeId, (long) nodeIds.get("123E4567-E89B-12D3-A456-426655440000"));
+    }
+
+    @Test
+    public void eventuallyConsistentLookupsShouldBeServedFromCache() {
+        //Given
+        registerModule(UuidConfiguration.defaultConfiguration().withUuidProperty("uuid").withNodeIdCacheSize(1024));
+
+        long nodeId;
+        String uuid;
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode();
+            nodeId = node.getId();
+            uuid = (String) node.getProperty("uuid");
+            tx.success();
+        }
+
+        //Then
+        assertEquals(nodeId, module.getNodeId(database, uuid, UuidConsistency.EVENTUAL));
+        assertEquals(nodeId, module.getNodeId(database, uuid, UuidConsistency.STRONG));
+
+        //When
+        try (Transaction tx = database.beginTx()) {
+            database.getNodeById(nodeId).delete();
+            tx.success();
+        }
+
+        //Then
+        assertTrue(module.getNodeIds(database, UuidConsistency.EVENTUAL, uuid).isEmpty());
+        assertTrue(module.getNodeIds(database, UuidConsistency.STRONG, uuid).isEmpty());
+    }
+
+    @Test
+    public void cacheShouldBeSavedOnShutdownAndWarmedUpFrom() throws IOException {
+        //Given
+        File snapshot = File.createTempFile("uuid-cache", ".tsv");
+        snapshot.deleteOnExit();
+
+        registerModule(UuidConfiguration.defaultConfiguration()
+                .withUuidProperty("uuid")
+                .withNodeIdCacheSize(1024)
+                .withWarmUpFile(snapshot.getAbsolutePath()));
+
+        long nodeId;
+        String uuid;
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode();
+            nodeId = node.getId();
+            uuid = (String) node.getProperty("uuid");
+            tx.success();
+        }
+
+        //When
+        module.shutdown();
+
+        //Then
+        try (BufferedReader reader = new BufferedReader(new FileReader(snapshot))) {
+            assertEquals(uuid + "\t" + nodeId, reader.readLine());
+            assertNull(reader.readLine());
+        }
+
+        //When
+        UuidNodeIdCache cache = new UuidNodeIdCache(1024);
+        int loaded = new UuidCacheWarmUp(module, uuidConfiguration, cache).load(database, snapshot, false);
+
+        //Then
+        assertEquals(1, loaded);
+        assertEquals(nodeId, cache.get(uuid));
+    }
+
+    @Test
+    public void batchImportedNodesShouldHaveIndexedUuids() throws IOException {
+        //Given
+        File storeDir = Files.createTempDirectory("uuid-import").toFile();
+        UuidConfiguration configuration = UuidConfiguration.defaultConfiguration().withUuidProperty("uuid");
+
+        BatchInserter inserter = BatchInserters.inserter(storeDir.getAbsolutePath());
+        UuidBatchInserter uuidInserter = new UuidBatchInserter(inserter, configuration);
+        long first = uuidInserter.createNode(Collections.<String, Object>singletonMap("name", "first"), personLabel);
+        long second = uuidInserter.createNode(Collections.<String, Object>singletonMap("uuid", "123e4567-e89b-12d3-a456-426655440000"));
+        //bypasses the UUID inserter, so it is only indexed if the module scans the store when it starts
+        inserter.createNode(Collections.<String, Object>singletonMap("uuid", "a4a2b6c0-3d51-11e4-916c-0800200c9a66"));
+        uuidInserter.shutdown();
+        inserter.shutdown();
+
+        assertTrue(new File(storeDir, UuidBatchInserter.MARKER_FILE).exists());
+
+        //When
+        database.shutdown();
+        database = new TestGraphDatabaseFactory().newEmbeddedDatabase(storeDir.getAbsolutePath());
+        registerModule(configuration);
+
+        //Then
+        String uuid;
+        try (Transaction tx = database.beginTx()) {
+            uuid = (String) database.getNodeById(first).getProperty("uuid");
+            tx.success();
+        }
+
+        assertTrue(UuidEncoding.HEX.isValid(uuid));
+        assertEquals(first, module.getNodeId(database, uuid));
+        assertEquals(second, module.getNodeId(database, "123e4567-e89b-12d3-a456-426655440000"));
+        assertTrue(module.getNodeIds(database, "a4a2b6c0-3d51-11e4-916c-0800200c9a66").isEmpty());
+        assertFalse(new File(storeDir, UuidBatchInserter.MARKER_FILE).exists());
+    }
+
+    @Test
+    public void batchImportWithDuplicateUuidsShouldBeCheckedOnStart() throws IOException {
+        //Given
+        File storeDir = Files.createTempDirectory("uuid-import").toFile();
+        UuidConfiguration configuration = UuidConfiguration.defaultConfiguration().withUuidProperty("uuid");
+
+        BatchInserter inserter = BatchInserters.inserter(storeDir.getAbsolutePath());
+        UuidBatchInserter uuidInserter = new UuidBatchInserter(inserter, configuration);
+        long first = uuidInserter.createNode(Collections.<String, Object>singletonMap("uuid", "123e4567-e89b-12d3-a456-426655440000"));
+        uuidInserter.createNode(Collections.<String, Object>singletonMap("uuid", "123e4567-e89b-12d3-a456-426655440000"));
+        inserter.createNode(Collections.<String, Object>singletonMap("uuid", "a4a2b6c0-3d51-11e4-916c-0800200c9a66"));
+
+        try {
+            uuidInserter.createNode(Collections.<String, Object>singletonMap("uuid", "not-a-uuid"));
+            fail();
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+
+        uuidInserter.shutdown();
+        inserter.shutdown();
+
+        assertFalse(new File(storeDir, UuidBatchInserter.MARKER_FILE).exists());
+
+        //When
+        database.shutdown();
+        database = new TestGraphDatabaseFactory().newEmbeddedDatabase(storeDir.getAbsolutePath());
+        registerModule(configuration);
+
+        //Then
+        assertEquals(first, module.getNodeId(database, "123e4567-e89b-12d3-a456-426655440000"));
+        assertEquals(1, module.getNodeIds(database, "a4a2b6c0-3d51-11e4-916c-0800200c9a66").size());
+    }
+
+    @Test
+    public void batchImportWithDuplicateNameBasedUuidsShouldNotBeMarkedComplete() throws IOException {
+        //Given
+        File storeDir = Files.createTempDirectory("uuid-import").toFile();
+        UuidConfiguration configuration = UuidConfiguration.defaultConfiguration()
+                .withUuidProperty("uuid")
+                .withGeneratorType(UuidGeneratorType.NAME_BASED)
+                .withNameBasedKeys(Arrays.asList("externalId"));
+
+        BatchInserter inserter = BatchInserters.inserter(storeDir.getAbsolutePath());
+        UuidBatchInserter uuidInserter = new UuidBatchInserter(inserter, configuration);
+        uuidInserter.createNode(Collections.<String, Object>singletonMap("externalId", "123"), personLabel);
+        uuidInserter.createNode(Collections.<String, Object>singletonMap("externalId", "123"), personLabel);
+        uuidInserter.createNode(Collections.<String, Object>singletonMap("externalId", "456"), personLabel);
+
+        //When
+        uuidInserter.shutdown();
+        inserter.shutdown();
+
+        //Then
+        assertFalse(new File(storeDir, UuidBatchInserter.MARKER_FILE).exists());
+    }
+
+    @Test
+    public void indexShouldBeRebuiltOnline() throws InterruptedException {
+        //Given
+        registerModuleWithNoLabels();
+
+        long nodeId;
+        String uuid;
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode();
+            nodeId = node.getId();
+            uuid = (String) node.getProperty("uuid");
+            tx.success();
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            database.index().forNodes(Indexes.UUID_NODE_INDEX).remove(database.getNodeById(nodeId));
+            tx.success();
+        }
+
+        assertTrue(module.getNodeIds(database, uuid).isEmpty());
+
+        //When
+        UuidIndexRebuild rebuild = module.startIndexRebuild(database);
+        for (int i = 0; i < 100 && !rebuild.isFinished(); i++) {
+            Thread.sleep(100);
+        }
+
+        //Then
+        assertTrue(rebuild.isFinished());
+        assertFalse(rebuild.isFailed());
+        assertEquals(1, rebuild.getIndexedNodes());
+        assertEquals(Indexes.UUID_NODE_INDEX + "-1", rebuild.getIndexName());
+        assertEquals(nodeId, module.getNodeId(database, uuid));
+
+        long newNodeId;
+        String newUuid;
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode();
+            newNodeId = node.getId();
+            newUuid = (String) node.getProperty("uuid");
+            tx.success();
+        }
+
+        assertEquals(newNodeId, module.getNodeId(database, newUuid));
+
+        try (Transaction tx = database.beginTx()) {
+            assertTrue(database.index().existsForNodes(Indexes.UUID_NODE_INDEX));
+            tx.success();
+        }
+
+        module.shutdown();
+        module.start(database);
+
+        try (Transaction tx = database.beginTx()) {
+            assertFalse(database.index().existsForNodes(Indexes.UUID_NODE_INDEX));
+            assertTrue(database.index().existsForNodes(Indexes.UUID_NODE_INDEX + "-1"));
+            tx.success();
+        }
+
+        assertEquals(nodeId, module.getNodeId(database, uuid));
+        assertEquals(newNodeId, module.getNodeId(database, newUuid));
+    }
+
     private void registerModuleWithNoLabels() {
-        uuidConfiguration = UuidConfiguration.defaultConfiguration().withUuidProperty("uuid");
-        GraphAwareRuntime runtime = GraphAwareRuntimeFactory.createRuntime(database);
-        UuidModule module = new UuidModule("UUIDM", uuidConfiguration);
-        runtime.registerModule(module);
-        runtime.start();
+        registerModule(UuidConfiguration.defaultConfiguration().withUuidProperty("uuid"));
     }
 
     private void registerModuleWithLabels() {
@@ -1012,8 +1920,13 @@ public class UuidModuleEmbeddedProgrammaticTest {
                     }
                 });
 
+        registerModule(uuidConfiguration);
+    }
+
+    private void registerModule(UuidConfiguration configuration) {
+        uuidConfiguration = configuration;
         GraphAwareRuntime runtime = GraphAwareRuntimeFactory.createRuntime(database);
-        UuidModule module = new UuidModule("UUIDM", uuidConfiguration);
+        module = new UuidModule("UUIDM", uuidConfiguration);
         runtime.registerModule(module);
         runtime.start();
     }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2014 GraphAware
+ *
+ * This file is part of GraphAware.
+ *
+ * GraphAware is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.module.uuid;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class UuidVerifierTest {
+
+    @Test
+    public void problemsInInputFileShouldBeReportedByRow() throws IOException {
+        File file = csv("id,uuid,name",
+                "1,a4a2b6c0-3d51-11e4-916c-0800200c9a66,one",
+                "2,\"b1e0c7a0-3d51-11e4-916c-0800200c9a66\",two",
+                "3,,three",
+                "4,not-a-uuid,four",
+                "5,A4A2B6C0-3D51-11E4-916C-0800200C9A66,five",
+                "6");
+
+        UuidAuditReport report = new UuidVerifier(UuidConfiguration.defaultConfiguration(), file.getParentFile()).verify(file, 1, ',', true);
+
+        assertFalse(report.isClean());
+        assertEquals(6, report.getScannedNodes());
+        assertEquals(Arrays.asList(4L, 7L), report.getNodesWithMissingUuid());
+        assertEquals(Collections.<Long, Object>singletonMap(5L, "not-a-uuid"), report.getNodesWithMalformedUuid());
+        assertEquals(Collections.singletonMap("a4a2b6c0-3d51-11e4-916c-0800200c9a66", Arrays.asList(2L, 6L)), report.getNodesWithDuplicateUuid());
+    }
+
+    @Test
+    public void quotedFieldsShouldBeExtracted() {
+        assertEquals("b", UuidVerifier.field("a,b,c", 1, ','));
+        assertEquals("b,\"c\"", UuidVerifier.field("a,\"b,\"\"c\"\"\",d", 1, ','));
+        assertEquals("c", UuidVerifier.field("a\tb\tc", 2, '\t'));
+        assertEquals("", UuidVerifier.field("a,,c", 1, ','));
+        assertNull(UuidVerifier.field("a,b", 2, ','));
+    }
+
+    private File csv(String... lines) throws IOException {
+        File file = File.createTempFile("uuids", ".csv");
+        file.deleteOnExit();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+        return file;
+    }
+}